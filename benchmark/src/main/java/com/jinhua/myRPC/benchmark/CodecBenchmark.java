@@ -0,0 +1,70 @@
+package com.jinhua.myRPC.benchmark;
+
+import com.jinhua.myRPC.codec.Compressor;
+import com.jinhua.myRPC.codec.MyDecode;
+import com.jinhua.myRPC.codec.MyEncode;
+import com.jinhua.myRPC.codec.Serializer;
+import com.jinhua.myRPC.common.RPCResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MyEncode编码一帧再由MyDecode解码的耗时，包括帧头、序列化和压缩，不包括网络
+ * compressorType编号见Compressor：0 不压缩，1 deflate，2 gzip，3 snappy；压缩时阈值为0，每帧都尝试压缩
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    @Param({"2", "3", "4"})
+    private int serializerType;
+
+    @Param({"0", "1", "3"})
+    private int compressorType;
+
+    // 响应中Blog标题的长度，控制帧的大小
+    @Param({"16", "16384"})
+    private int titleLength;
+
+    private EmbeddedChannel channel;
+    private RPCResponse response;
+
+    @Setup
+    public void setup() {
+        Compressor compressor = compressorType == 0 ? null : Compressor.getCompressorByCode(compressorType);
+        channel = new EmbeddedChannel(
+                new MyEncode(Serializer.getSerializerByCode(serializerType), compressor, 0),
+                new MyDecode());
+        response = RPCResponse.success(Payloads.blog(titleLength));
+        response.setRequestId(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        channel.writeOutbound(response);
+        ByteBuf frame = channel.readOutbound();
+        channel.writeInbound(frame);
+        return channel.readInbound();
+    }
+
+    // 只测编码，帧大小可以在结果里对比压缩效果
+    @Benchmark
+    public int encode() {
+        channel.writeOutbound(response);
+        ByteBuf frame = channel.readOutbound();
+        int length = frame.readableBytes();
+        frame.release();
+        return length;
+    }
+}
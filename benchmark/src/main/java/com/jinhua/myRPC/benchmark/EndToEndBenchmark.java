@@ -0,0 +1,111 @@
+package com.jinhua.myRPC.benchmark;
+
+import com.jinhua.myRPC.client.ConnectionPoolConfig;
+import com.jinhua.myRPC.client.NettyRPCClient;
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+import com.jinhua.myRPC.register.LocalServiceRegister;
+import com.jinhua.myRPC.server.NettyRPCServer;
+import com.jinhua.myRPC.server.ServiceProvider;
+import com.jinhua.myRPC.service.UserService;
+import com.jinhua.myRPC.service.UserServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机回环上的完整调用：NettyRPCClient -> NettyRPCServer -> UserServiceImpl
+ * 使用进程内的注册中心，不需要zookeeper；调用的hello方法不打印日志，测到的基本是框架本身的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+    // 一次异步批量调用发出的请求数
+    private static final int BATCH = 64;
+
+    // 客户端写合并，1表示每个请求单独flush
+    @Param({"1", "32"})
+    private int batchMaxMessages;
+
+    private NettyRPCClient client;
+    private RPCRequest helloRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        int port = freePort();
+        LocalServiceRegister register = new LocalServiceRegister();
+        ServiceProvider serviceProvider = new ServiceProvider("127.0.0.1", port, register);
+        serviceProvider.provideServiceInterface(new UserServiceImpl());
+        // start会一直阻塞到服务端关闭，放到后台线程，测试进程退出时随之结束
+        Thread server = new Thread(() -> new NettyRPCServer(serviceProvider).start(port), "benchmark-server");
+        server.setDaemon(true);
+        server.start();
+        waitForPort(port);
+
+        client = new NettyRPCClient(ConnectionPoolConfig.builder().batchMaxMessages(batchMaxMessages).build(), register);
+        helloRequest = RPCRequest.builder().interfaceName(UserService.class.getName())
+                .methodName("hello").params(new Object[0]).paramsTypes(new Class[0]).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    // 请求对象会被客户端写入请求id和超时时间，每次调用使用新的请求
+    private RPCRequest hello() {
+        return helloRequest.toBuilder().build();
+    }
+
+    // 同步调用：一个线程一次只有一个请求在路上，主要反映延迟
+    @Benchmark
+    public RPCResponse syncCall() throws Exception {
+        return client.sendRequestAsync(hello()).get();
+    }
+
+    // 同步调用，带参数并返回User对象，比hello多了参数和返回值的序列化；注意这个方法在服务端会打印一行日志
+    @Benchmark
+    public RPCResponse syncCallWithUser() throws Exception {
+        RPCRequest request = RPCRequest.builder().interfaceName(UserService.class.getName())
+                .methodName("getUserByUserId").params(new Object[]{22})
+                .paramsTypes(new Class[]{Integer.class}).build();
+        return client.sendRequestAsync(request).get();
+    }
+
+    // 异步调用：一次发出BATCH个请求再等待全部完成，反映同一连接上多路复用和写合并的吞吐
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object asyncBatch() throws Exception {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            futures[i] = client.sendRequestAsync(hello());
+        }
+        return CompletableFuture.allOf(futures).get();
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void waitForPort(int port) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 100);
+                return;
+            } catch (Exception e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("服务端没有在5秒内启动：" + port);
+    }
+}
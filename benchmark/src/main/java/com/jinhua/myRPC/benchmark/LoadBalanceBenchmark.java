@@ -0,0 +1,115 @@
+package com.jinhua.myRPC.benchmark;
+
+import com.jinhua.myRPC.LoadBalance.*;
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.User;
+import com.jinhua.myRPC.service.UserService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各个负载均衡器一次doSelect的耗时
+ * 负载均衡器在所有线程间共享，和客户端里一样，可以用 -t 指定线程数观察竞争
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBalanceBenchmark {
+    @Param({"random", "round", "weightedRound", "leastActive", "p2c", "consistentHash"})
+    private String balancer;
+
+    @Param({"3", "30", "300"})
+    private int addresses;
+
+    private LoadBalance loadBalance;
+    private List<String> addressList;
+    private Map<String, Integer> weights;
+
+    private PrintStream stdout;
+
+    @Setup
+    public void setup() {
+        loadBalance = newLoadBalance(balancer);
+        addressList = new ArrayList<>(addresses);
+        weights = new HashMap<>();
+        for (int i = 0; i < addresses; i++) {
+            String address = "10.0." + (i / 256) + "." + (i % 256) + ":8899";
+            addressList.add(address);
+            // 权重不全相同，加权算法走完整的计算
+            weights.put(address, LoadBalance.DEFAULT_WEIGHT * (1 + i % 3));
+        }
+        // RandomLoadBalance每次选择都会打印，测试期间丢弃控制台输出
+        stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    private static LoadBalance newLoadBalance(String name) {
+        switch (name) {
+            case "random":
+                return new RandomLoadBalance();
+            case "round":
+                return new RoundLoadBalance();
+            case "weightedRound":
+                return new WeightedRoundLoadBalance();
+            case "leastActive":
+                return new LeastActiveLoadBalance();
+            case "p2c":
+                return new P2CEwmaLoadBalance();
+            case "consistentHash":
+                return new ConsistentHashLoadBalance();
+            default:
+                throw new IllegalArgumentException("未知的负载均衡器：" + name);
+        }
+    }
+
+    /**
+     * 每个线程轮流使用参数不同的请求，一致性哈希每次落到环上不同的位置
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+        private final RPCRequest[] requests = new RPCRequest[1024];
+        private int next;
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < requests.length; i++) {
+                User user = User.builder().id(i).userName("jinhua" + i).sex(true).build();
+                requests[i] = RPCRequest.builder().interfaceName(UserService.class.getName())
+                        .methodName("insertUserId").params(new Object[]{user})
+                        .paramsTypes(new Class[]{User.class}).build();
+            }
+        }
+
+        RPCRequest next() {
+            return requests[next++ & (requests.length - 1)];
+        }
+    }
+
+    @Benchmark
+    public String doSelect(Requests requests) {
+        return loadBalance.doSelect(addressList, weights, requests.next());
+    }
+}
@@ -0,0 +1,47 @@
+package com.jinhua.myRPC.benchmark;
+
+import com.jinhua.myRPC.common.Blog;
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+import com.jinhua.myRPC.common.User;
+import com.jinhua.myRPC.service.BlogService;
+import com.jinhua.myRPC.service.UserService;
+
+/**
+ * 各个性能测试共用的请求和响应
+ */
+class Payloads {
+    private Payloads() {
+    }
+
+    static User user() {
+        return User.builder().id(22).userName("jinhua").sex(true).build();
+    }
+
+    // titleLength控制消息体大小，用来观察大消息和压缩
+    static Blog blog(int titleLength) {
+        StringBuilder title = new StringBuilder(titleLength);
+        for (int i = 0; i < titleLength; i++) {
+            title.append((char) ('a' + i % 26));
+        }
+        return Blog.builder().id(1).userId(22).title(title.toString()).build();
+    }
+
+    // payload为user或blog
+    static RPCRequest request(String payload) {
+        if ("blog".equals(payload)) {
+            return RPCRequest.builder().requestId(1).interfaceName(BlogService.class.getName())
+                    .methodName("getBlogById").params(new Object[]{1}).paramsTypes(new Class[]{Integer.class})
+                    .timeout(5000).build();
+        }
+        return RPCRequest.builder().requestId(1).interfaceName(UserService.class.getName())
+                .methodName("insertUserId").params(new Object[]{user()}).paramsTypes(new Class[]{User.class})
+                .timeout(5000).build();
+    }
+
+    static RPCResponse response(String payload) {
+        RPCResponse response = RPCResponse.success("blog".equals(payload) ? blog(64) : user());
+        response.setRequestId(1);
+        return response;
+    }
+}
@@ -0,0 +1,90 @@
+package com.jinhua.myRPC.benchmark;
+
+import com.jinhua.myRPC.codec.MessageType;
+import com.jinhua.myRPC.codec.Serializer;
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各个序列化器序列化、反序列化RPCRequest和RPCResponse的耗时
+ * serializerType编号见Serializer：0 java，1 json，2 hessian，3 kryo，4 protostuff
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+    @Param({"0", "1", "2", "3", "4"})
+    private int serializerType;
+
+    @Param({"user", "blog"})
+    private String payload;
+
+    private Serializer serializer;
+    private RPCRequest request;
+    private RPCResponse response;
+
+    // 事先序列化好的数据，单独测反序列化
+    private byte[] requestBytes;
+    private byte[] responseBytes;
+
+    // 复用的输出缓冲区，不把分配ByteBuf的开销算进去
+    private ByteBuf buffer;
+
+    @Setup
+    public void setup() {
+        serializer = Serializer.getSerializerByCode(serializerType);
+        request = Payloads.request(payload);
+        response = Payloads.response(payload);
+        requestBytes = serializer.serialize(request);
+        responseBytes = serializer.serialize(response);
+        buffer = Unpooled.directBuffer(4096);
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.release();
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() {
+        return serializer.serialize(request);
+    }
+
+    @Benchmark
+    public Object deserializeRequest() {
+        return serializer.deserialize(requestBytes, MessageType.REQUEST.getCode());
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() {
+        return serializer.serialize(response);
+    }
+
+    @Benchmark
+    public Object deserializeResponse() {
+        return serializer.deserialize(responseBytes, MessageType.RESPONSE.getCode());
+    }
+
+    // 编解码器实际使用的路径：直接写入ByteBuf，再从ByteBuf读出
+    @Benchmark
+    public Object requestRoundTripByteBuf() {
+        buffer.clear();
+        serializer.serialize(request, buffer);
+        return serializer.deserialize(buffer, buffer.readableBytes(), MessageType.REQUEST.getCode());
+    }
+
+    @Benchmark
+    public Object responseRoundTripByteBuf() {
+        buffer.clear();
+        serializer.serialize(response, buffer);
+        return serializer.deserialize(buffer, buffer.readableBytes(), MessageType.RESPONSE.getCode());
+    }
+}
@@ -3,104 +3,243 @@ package com.jinhua.myRPC.LoadBalance;
 import com.jinhua.myRPC.common.RPCRequest;
 
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * 一致性哈希算法，就是先将服务节点映射到[0,2^32-1]的哈希环上，再将新请求的key值映射到哈希环上，该请求就会选择比这个key值大的最近的一个服务节点
+ * 一致性哈希算法，就是先将服务节点映射到64位的哈希环上，再将新请求的key值映射到哈希环上，该请求就会选择比这个key值大的最近的一个服务节点
+ * 哈希环用排好序的long[]保存，查找用二分；哈希使用murmur3；
+ * 地址集合的内容不变时一直复用同一个环，节点上下线时只计算变化节点的虚拟节点，再和原来的环合并
  */
 public class ConsistentHashLoadBalance implements LoadBalance{
+    // 每个真实节点对应的虚拟节点数
+    private static final int REPLICA_NUMBER = 160;
+
     // 使用 ConcurrentHashMap来存储不同的服务对应ConsistentHashSelector实例
     private final ConcurrentHashMap<String, ConsistentHashSelector> selectors = new ConcurrentHashMap<>();
 
+    // 接口名.方法名 -> 参与哈希的参数下标，没有配置的方法使用全部参数
+    private final Map<String, int[]> hashArguments = new ConcurrentHashMap<>();
+
+    // 指定某个方法用哪些参数计算哈希，例如按用户id路由时只用第一个参数：setHashArguments(接口名, 方法名, 0)
+    public void setHashArguments(String interfaceName, String methodName, int... argumentIndexes) {
+        hashArguments.put(interfaceName + "." + methodName, argumentIndexes.clone());
+    }
+
     @Override
     public String doSelect(List<String> addressList, RPCRequest request) {
-        // 获取 serviceAddresses 的哈希码
-        int identityHashCode = System.identityHashCode(addressList);
         String interfaceName = request.getInterfaceName();
 
         // 根据服务的名字找对应的 ConsistentHashSelector 实例
         ConsistentHashSelector selector = selectors.get(interfaceName);
-        // 检查是否需要更新 ConsistentHashSelector 实例
-        if (selector == null || selector.identityHashCode != identityHashCode) {
-            // 如果 selector 不存在或者哈希码不匹配，创建一个新的 ConsistentHashSelector 实例并存入 selectors 中
-            selectors.put(interfaceName, new ConsistentHashSelector(addressList, 160, identityHashCode));
-            selector = selectors.get(interfaceName);
+        // 地址集合的内容变化时，在原来的环上增量更新
+        if (selector == null || !selector.sameAddresses(addressList)) {
+            selector = selector == null ? ConsistentHashSelector.build(addressList) : selector.update(addressList);
+            selectors.put(interfaceName, selector);
         }
         // 调用 selector 的 select 方法进行选择，并返回结果
-        return selector.select(interfaceName + Arrays.stream(request.getParams()));
+        return selector.select(hashKey(request));
+    }
+
+    // 用接口名、方法名和实际参数值拼出哈希的key，相同参数的请求总是落到同一个节点
+    private String hashKey(RPCRequest request) {
+        StringBuilder key = new StringBuilder(64);
+        key.append(request.getInterfaceName()).append('.').append(request.getMethodName());
+        Object[] params = request.getParams();
+        if (params == null) {
+            return key.toString();
+        }
+        int[] indexes = hashArguments.get(request.getInterfaceName() + "." + request.getMethodName());
+        if (indexes == null) {
+            for (Object param : params) {
+                appendParam(key, param);
+            }
+        } else {
+            for (int index : indexes) {
+                if (index < params.length) {
+                    appendParam(key, params[index]);
+                }
+            }
+        }
+        return key.toString();
     }
 
+    private static void appendParam(StringBuilder key, Object param) {
+        key.append('#');
+        if (param instanceof Object[]) {
+            key.append(Arrays.deepToString((Object[]) param));
+        } else if (param != null && param.getClass().isArray()) {
+            key.append(Arrays.deepToString(new Object[]{param}));
+        } else {
+            key.append(param);
+        }
+    }
+
+    static long hash(String key) {
+        return Murmur3.hash64(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 一个服务的哈希环，创建后不再修改，更新时生成新的实例
+     */
     static class ConsistentHashSelector {
-        // 使用TreeMap来存储虚拟节点和真实节点之间的映射关系
-        private final TreeMap<Long, String> virtualInvokers;
-
-        // 用于标识ConsistentHashSelector实例的哈希码
-        private final int identityHashCode;
-
-        ConsistentHashSelector(List<String> invokers, int replicaNumber, int identityHashCode) {
-            this.virtualInvokers = new TreeMap<>();
-            this.identityHashCode = identityHashCode;
-
-            // 遍历 invokers 列表，为每个 invoker 创建 replicaNumber/4 个虚拟节点，并将虚拟节点和真实节点的映射关系存入 virtualInvokers中
-            for (String invoker : invokers) {
-                for (int i = 0; i < replicaNumber / 4; i++) {
-                    byte[] digest = md5(invoker + i);
-                    for (int h = 0; h < 4; h++) {
-                        long m = hash(digest, h);
-                        // 哈希值 为key , 服务地址为 value 放在TreeMap数据结构中
-                        virtualInvokers.put(m, invoker);
-                    }
+        // 排好序的虚拟节点哈希值，和owners一一对应
+        private final long[] points;
+        private final String[] owners;
+
+        // 真实节点 -> 它的虚拟节点哈希值，节点上下线时复用，不用重新计算
+        private final Map<String, long[]> nodePoints;
+
+        // 最近一次确认内容相同的地址列表和它的内容哈希，注册中心的地址不变时每次传入的都是同一个列表
+        private volatile List<String> lastAddressList;
+        private volatile int lastContentHash;
+
+        private ConsistentHashSelector(long[] points, String[] owners, Map<String, long[]> nodePoints, List<String> addressList) {
+            this.points = points;
+            this.owners = owners;
+            this.nodePoints = nodePoints;
+            this.lastContentHash = contentHash(addressList);
+            this.lastAddressList = addressList;
+        }
+
+        static ConsistentHashSelector build(List<String> addressList) {
+            Map<String, long[]> nodePoints = new HashMap<>();
+            for (String address : new HashSet<>(addressList)) {
+                nodePoints.put(address, virtualPoints(address));
+            }
+            return merge(new long[0], new String[0], nodePoints, nodePoints.keySet(), addressList);
+        }
+
+        // 去掉下线节点的虚拟节点，再把新节点的虚拟节点合并进来
+        ConsistentHashSelector update(List<String> addressList) {
+            Set<String> alive = new HashSet<>(addressList);
+            Map<String, long[]> newNodePoints = new HashMap<>();
+            Set<String> added = new HashSet<>();
+            for (String address : alive) {
+                long[] existing = nodePoints.get(address);
+                if (existing == null) {
+                    newNodePoints.put(address, virtualPoints(address));
+                    added.add(address);
+                } else {
+                    newNodePoints.put(address, existing);
                 }
             }
+
+            long[] keptPoints = new long[points.length];
+            String[] keptOwners = new String[owners.length];
+            int kept = 0;
+            for (int i = 0; i < points.length; i++) {
+                if (alive.contains(owners[i])) {
+                    keptPoints[kept] = points[i];
+                    keptOwners[kept] = owners[i];
+                    kept++;
+                }
+            }
+            return merge(Arrays.copyOf(keptPoints, kept), Arrays.copyOf(keptOwners, kept),
+                    newNodePoints, added, addressList);
         }
 
-        // 计算字符串的 MD5 哈希值
-        static byte[] md5(String key) {
-            MessageDigest md;
-            try {
-                // 获取 MD5消息摘要 算法实例
-                md = MessageDigest.getInstance("MD5");
-                byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
-                // 使用MD5算法对字节数组进行哈希计算
-                md.update(bytes);
-            } catch (NoSuchAlgorithmException e) {
-                throw new IllegalStateException(e.getMessage(), e);
+        // 把added中节点的虚拟节点和已经排好序的环做一次归并
+        private static ConsistentHashSelector merge(long[] points, String[] owners, Map<String, long[]> nodePoints,
+                                                    Collection<String> added, List<String> addressList) {
+            int addedCount = added.size() * REPLICA_NUMBER;
+            long[] addedPoints = new long[addedCount];
+            String[] addedOwners = new String[addedCount];
+            int n = 0;
+            for (String address : added) {
+                for (long point : nodePoints.get(address)) {
+                    addedPoints[n] = point;
+                    addedOwners[n] = address;
+                    n++;
+                }
             }
-            return md.digest();
+            sort(addedPoints, addedOwners);
+
+            long[] mergedPoints = new long[points.length + addedCount];
+            String[] mergedOwners = new String[mergedPoints.length];
+            int i = 0, j = 0, k = 0;
+            while (i < points.length || j < addedCount) {
+                if (j == addedCount || (i < points.length && points[i] <= addedPoints[j])) {
+                    mergedPoints[k] = points[i];
+                    mergedOwners[k++] = owners[i++];
+                } else {
+                    mergedPoints[k] = addedPoints[j];
+                    mergedOwners[k++] = addedOwners[j++];
+                }
+            }
+            return new ConsistentHashSelector(mergedPoints, mergedOwners, nodePoints, addressList);
         }
 
-        // 计算哈希值
-        private long hash(byte[] digest, int number) {
-            // 这个就是将字符串的MD5哈希值的字节数组，按4个字节转化为一个32b的整数最后合并起来形成一个long的哈希值
-            return (((long) (digest[3 + number * 4] & 0xFF) << 24)
-                    | ((long) (digest[2 + number * 4] & 0xFF) << 16)
-                    | ((long) (digest[1 + number * 4] & 0xFF) << 8)
-                    | (digest[number * 4] & 0xFF))
-                    & 0xFFFFFFFFL;
+        // 一个节点的所有虚拟节点哈希值
+        private static long[] virtualPoints(String address) {
+            long[] result = new long[REPLICA_NUMBER];
+            for (int i = 0; i < REPLICA_NUMBER; i++) {
+                result[i] = hash(address + "#" + i);
+            }
+            return result;
         }
 
-        // 根据 rpcServiceKey 选择一个服务地址
-        public String select(String rpcServiceKey) {
-            byte[] digest = md5(rpcServiceKey);
-            return selectForKey(hash(digest, 0));
+        // 按哈希值排序，owners跟着一起移动
+        private static void sort(long[] points, String[] owners) {
+            Integer[] order = new Integer[points.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(points[a], points[b]));
+            long[] sortedPoints = new long[points.length];
+            String[] sortedOwners = new String[owners.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedPoints[i] = points[order[i]];
+                sortedOwners[i] = owners[order[i]];
+            }
+            System.arraycopy(sortedPoints, 0, points, 0, points.length);
+            System.arraycopy(sortedOwners, 0, owners, 0, owners.length);
         }
 
-        // 根据哈希值选择一个服务地址
-        public String selectForKey(long hashCode) {
-            Map.Entry<Long, String> entry = virtualInvokers.tailMap(hashCode, true).firstEntry();
+        // 和顺序无关的内容哈希，String的hashCode有缓存，计算不分配对象
+        private static int contentHash(List<String> addressList) {
+            int h = addressList.size();
+            for (int i = 0; i < addressList.size(); i++) {
+                h += addressList.get(i).hashCode();
+            }
+            return h;
+        }
 
-            if (entry == null) {
-                entry = virtualInvokers.firstEntry();
+        // 判断地址集合是否和环上的节点相同
+        // 还是同一个列表时只检查内容哈希（可变列表可能被原地修改），换了列表才完整比较一次内容
+        boolean sameAddresses(List<String> addressList) {
+            if (addressList == lastAddressList && contentHash(addressList) == lastContentHash) {
+                return true;
+            }
+            if (!nodePoints.keySet().equals(new HashSet<>(addressList))) {
+                return false;
             }
+            lastAddressList = addressList;
+            lastContentHash = contentHash(addressList);
+            return true;
+        }
 
-            return entry.getValue();
+        // 根据 rpcServiceKey 选择一个服务地址
+        public String select(String rpcServiceKey) {
+            return selectForKey(hash(rpcServiceKey));
         }
 
+        // 根据哈希值选择一个服务地址：第一个大于等于该值的虚拟节点，超过最后一个则回到环的起点
+        public String selectForKey(long hashCode) {
+            int index = Arrays.binarySearch(points, hashCode);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            if (index == points.length) {
+                index = 0;
+            }
+            return owners[index];
+        }
     }
 }
@@ -0,0 +1,55 @@
+package com.jinhua.myRPC.LoadBalance;
+
+import com.jinhua.myRPC.common.RPCRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最少活跃请求的负载均衡策略
+ * 选择客户端上正在处理的请求最少的地址，处理慢的服务端积压的请求多，自然分到的请求就少；
+ * 活跃数相同的多个地址按权重随机选择
+ */
+public class LeastActiveLoadBalance implements LoadBalance {
+    @Override
+    public String doSelect(List<String> addressList, RPCRequest request) {
+        return doSelect(addressList, null, request);
+    }
+
+    @Override
+    public String doSelect(List<String> addressList, Map<String, Integer> weights, RPCRequest request) {
+        int size = addressList.size();
+        int leastActive = Integer.MAX_VALUE;
+        // 活跃数最少的地址的下标、个数和总权重
+        int[] leastIndexes = new int[size];
+        int leastCount = 0;
+        int totalWeight = 0;
+        for (int i = 0; i < size; i++) {
+            String address = addressList.get(i);
+            int active = ServerStats.of(address).getActive();
+            int weight = LoadBalance.weightOf(weights, address);
+            if (active < leastActive) {
+                leastActive = active;
+                leastCount = 0;
+                totalWeight = 0;
+            }
+            if (active == leastActive) {
+                leastIndexes[leastCount++] = i;
+                totalWeight += weight;
+            }
+        }
+        if (leastCount == 1 || totalWeight <= 0) {
+            return addressList.get(leastIndexes[0]);
+        }
+        int offset = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < leastCount; i++) {
+            String address = addressList.get(leastIndexes[i]);
+            offset -= LoadBalance.weightOf(weights, address);
+            if (offset < 0) {
+                return address;
+            }
+        }
+        return addressList.get(leastIndexes[0]);
+    }
+}
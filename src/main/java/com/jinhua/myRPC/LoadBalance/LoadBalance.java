@@ -3,11 +3,29 @@ package com.jinhua.myRPC.LoadBalance;
 import com.jinhua.myRPC.common.RPCRequest;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 负载均衡器
  */
 public interface LoadBalance {
+    // 注册时没有指定权重的服务端使用的默认权重
+    int DEFAULT_WEIGHT = 100;
+
     // 在节点列表里面选择一个客户端节点地址
     String doSelect(List<String> addressList, RPCRequest request);
+
+    // 带权重的选择，weights为地址 -> 注册中心中的权重，不关心权重的负载均衡器直接忽略
+    default String doSelect(List<String> addressList, Map<String, Integer> weights, RPCRequest request) {
+        return doSelect(addressList, request);
+    }
+
+    // 取某个地址的权重，没有权重信息时使用默认权重
+    static int weightOf(Map<String, Integer> weights, String address) {
+        if (weights == null) {
+            return DEFAULT_WEIGHT;
+        }
+        Integer weight = weights.get(address);
+        return weight == null ? DEFAULT_WEIGHT : Math.max(weight, 0);
+    }
 }
@@ -0,0 +1,57 @@
+package com.jinhua.myRPC.LoadBalance;
+
+import com.jinhua.myRPC.common.RPCRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 两次随机选择（power of two choices）+ 响应时间EWMA的负载均衡策略
+ * 随机挑两个地址，选负载代价较小的那个：代价 = 响应时间EWMA * (正在处理的请求数 + 1) / 权重
+ * 只比较两个地址，不需要遍历全部，也不会让所有客户端同时涌向同一个"最快"的节点；
+ * 响应变慢（例如GC停顿）的节点EWMA立刻升高，很快就分不到请求
+ */
+public class P2CEwmaLoadBalance implements LoadBalance {
+    // 还没有响应时间样本但已经有请求在处理的节点，每个请求按1秒计算代价，避免新节点一上线就被压垮
+    private static final double PENALTY_NANOS = 1_000_000_000.0;
+
+    @Override
+    public String doSelect(List<String> addressList, RPCRequest request) {
+        return doSelect(addressList, null, request);
+    }
+
+    @Override
+    public String doSelect(List<String> addressList, Map<String, Integer> weights, RPCRequest request) {
+        int size = addressList.size();
+        if (size == 1) {
+            return addressList.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(size);
+        // 第二个下标从其余的size-1个里选，保证两个地址不同
+        int b = random.nextInt(size - 1);
+        if (b >= a) {
+            b++;
+        }
+        String first = addressList.get(a);
+        String second = addressList.get(b);
+        return cost(first, weights) <= cost(second, weights) ? first : second;
+    }
+
+    private static double cost(String address, Map<String, Integer> weights) {
+        ServerStats stats = ServerStats.of(address);
+        int active = stats.getActive();
+        double latency;
+        if (stats.hasSamples()) {
+            latency = stats.getEwmaNanos();
+        } else {
+            latency = active == 0 ? 0 : PENALTY_NANOS;
+        }
+        int weight = LoadBalance.weightOf(weights, address);
+        if (weight <= 0) {
+            return Double.MAX_VALUE;
+        }
+        return latency * (active + 1) / weight;
+    }
+}
@@ -3,16 +3,23 @@ package com.jinhua.myRPC.LoadBalance;
 import com.jinhua.myRPC.common.RPCRequest;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 轮询的负载均衡策略
+ * 每个服务一个原子计数器，多个线程同时调用也不会加锁或选出越界的下标
  */
 public class RoundLoadBalance implements LoadBalance{
-    private int choose = -1;
+    // 服务名 -> 该服务的轮询计数
+    private final Map<String, AtomicInteger> counters = new ConcurrentHashMap<>();
+
     @Override
     public String doSelect(List<String> addressList, RPCRequest request) {
-        choose++;
-        choose = choose % addressList.size();
+        AtomicInteger counter = counters.computeIfAbsent(request.getInterfaceName(), k -> new AtomicInteger());
+        // 计数溢出变成负数后floorMod仍然返回合法下标
+        int choose = Math.floorMod(counter.getAndIncrement(), addressList.size());
         return addressList.get(choose);
     }
 }
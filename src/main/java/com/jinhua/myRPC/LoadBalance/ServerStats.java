@@ -0,0 +1,99 @@
+package com.jinhua.myRPC.LoadBalance;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 客户端统计的每个服务地址的状态：正在处理的请求数和响应时间的EWMA
+ * 由客户端在请求发出和完成时更新，LeastActiveLoadBalance和P2CEwmaLoadBalance读取
+ * 地址格式和注册中心中的一致：host:port
+ */
+public class ServerStats {
+    // 地址 -> 统计，进程内所有客户端共用
+    private static final Map<String, ServerStats> STATS = new ConcurrentHashMap<>();
+
+    // EWMA的衰减时间，越小越快忘记以前的响应时间
+    private static final double DECAY_NANOS = 10_000_000_000.0;
+
+    // 正在处理的请求数
+    private final AtomicInteger active = new AtomicInteger();
+
+    // 响应时间的EWMA和最后更新时间，一起原子替换
+    private final AtomicReference<Ewma> ewma = new AtomicReference<>(new Ewma(0, System.nanoTime()));
+
+    public static ServerStats of(String address) {
+        return STATS.computeIfAbsent(address, k -> new ServerStats());
+    }
+
+    public static ServerStats of(InetSocketAddress address) {
+        return of(address.getHostString() + ":" + address.getPort());
+    }
+
+    // 请求发出前调用，返回开始时间
+    public long begin() {
+        active.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    // 请求完成后调用，失败的请求同样计入响应时间
+    public void end(long startNanos) {
+        active.decrementAndGet();
+        long now = System.nanoTime();
+        observe(now - startNanos, now);
+    }
+
+    // 流式调用结束后调用，只减少正在处理的请求数，不计入响应时间
+    // 流的持续时间取决于结果大小和调用方读取的快慢，不能反映节点的快慢
+    public void endStream() {
+        active.decrementAndGet();
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    // 当前的响应时间EWMA（纳秒），没有请求时随时间逐渐衰减到0，慢节点过一段时间会重新得到试探流量
+    public double getEwmaNanos() {
+        Ewma current = ewma.get();
+        return current.value * decay(System.nanoTime() - current.timestamp);
+    }
+
+    // 是否已经有过响应时间样本
+    public boolean hasSamples() {
+        return ewma.get().value > 0;
+    }
+
+    // 比当前值慢的样本直接取代当前值，让变慢的节点立刻被避开；变快时按时间衰减逐渐下降
+    private void observe(long rttNanos, long now) {
+        while (true) {
+            Ewma current = ewma.get();
+            double value;
+            if (rttNanos > current.value) {
+                value = rttNanos;
+            } else {
+                double w = decay(now - current.timestamp);
+                value = current.value * w + rttNanos * (1 - w);
+            }
+            if (ewma.compareAndSet(current, new Ewma(value, now))) {
+                return;
+            }
+        }
+    }
+
+    private static double decay(long elapsedNanos) {
+        return Math.exp(-Math.max(elapsedNanos, 0) / DECAY_NANOS);
+    }
+
+    private static class Ewma {
+        private final double value;
+        private final long timestamp;
+
+        Ewma(double value, long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+}
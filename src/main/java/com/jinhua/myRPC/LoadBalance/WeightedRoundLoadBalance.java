@@ -0,0 +1,86 @@
+package com.jinhua.myRPC.LoadBalance;
+
+import com.jinhua.myRPC.common.RPCRequest;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 平滑加权轮询（和nginx的算法相同）
+ * 每次选择时所有节点的当前值加上自己的权重，选出当前值最大的节点，再把它减去总权重；
+ * 权重为5、1、1时选择顺序为a a b a c a a，而不是a a a a a b c，流量在一个周期内是均匀分散的
+ * 当前值用AtomicLong保存，不加锁，并发选择时结果近似平滑，但总体比例仍然和权重一致
+ */
+public class WeightedRoundLoadBalance implements LoadBalance {
+    // 服务名 -> 该服务每个地址的状态
+    private final Map<String, ServiceState> states = new ConcurrentHashMap<>();
+
+    @Override
+    public String doSelect(List<String> addressList, RPCRequest request) {
+        return doSelect(addressList, null, request);
+    }
+
+    @Override
+    public String doSelect(List<String> addressList, Map<String, Integer> weights, RPCRequest request) {
+        ServiceState state = states.computeIfAbsent(request.getInterfaceName(), k -> new ServiceState());
+        state.removeStale(addressList);
+
+        long totalWeight = 0;
+        long maxCurrent = Long.MIN_VALUE;
+        String selected = null;
+        WeightedNode selectedNode = null;
+        for (String address : addressList) {
+            int weight = LoadBalance.weightOf(weights, address);
+            if (weight <= 0) {
+                continue;
+            }
+            WeightedNode node = state.nodes.computeIfAbsent(address, k -> new WeightedNode());
+            if (node.weight != weight) {
+                // 权重变化后从头开始累加，否则旧的当前值要很多轮才能追上新的比例
+                node.weight = weight;
+                node.current.set(0);
+            }
+            long current = node.current.addAndGet(weight);
+            totalWeight += weight;
+            if (current > maxCurrent) {
+                maxCurrent = current;
+                selected = address;
+                selectedNode = node;
+            }
+        }
+        if (selectedNode == null) {
+            // 所有节点权重都为0，退化为第一个节点
+            return addressList.get(0);
+        }
+        selectedNode.current.addAndGet(-totalWeight);
+        return selected;
+    }
+
+    // 一个服务的所有地址状态
+    private static class ServiceState {
+        private final Map<String, WeightedNode> nodes = new ConcurrentHashMap<>();
+
+        // 最近一次看到的地址列表，列表变化时清理已经下线的地址
+        private volatile List<String> lastAddressList;
+
+        void removeStale(List<String> addressList) {
+            if (addressList == lastAddressList) {
+                return;
+            }
+            Set<String> alive = new HashSet<>(addressList);
+            nodes.keySet().retainAll(alive);
+            lastAddressList = addressList;
+        }
+    }
+
+    // 一个地址的权重和当前值
+    private static class WeightedNode {
+        private volatile int weight;
+
+        private final AtomicLong current = new AtomicLong();
+    }
+}
@@ -0,0 +1,59 @@
+package com.jinhua.myRPC.client;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 客户端连接池配置，每个服务地址对应一个连接池
+ */
+@Data
+@Builder
+public class ConnectionPoolConfig {
+    // 每个服务地址最多保持的长连接数
+    @Builder.Default
+    private int maxConnections = 4;
+
+    // 连接池满时，最多允许多少个请求排队等待连接
+    @Builder.Default
+    private int maxPendingAcquires = Integer.MAX_VALUE;
+
+    // 获取连接的最长等待时间，超时则请求失败
+    @Builder.Default
+    private long acquireTimeoutMillis = 3000;
+
+    // 连接空闲超过该时间（秒）就会被关闭，连接池下次获取时会剔除它
+    @Builder.Default
+    private int idleTimeoutSeconds = 60;
+
+    // 调用的默认超时时间（毫秒），接口或方法上标注了RPCTimeout时以标注为准，0表示不限制
+    @Builder.Default
+    private long requestTimeoutMillis = 5000;
+
+    // 流式调用的信用窗口：服务端最多比客户端多发送多少个元素，决定两端缓存的元素个数上限，必须大于0
+    @Builder.Default
+    private int streamWindow = 64;
+
+    // 一个连接上攒够多少个请求立即flush，设为1则关闭写合并
+    @Builder.Default
+    private int batchMaxMessages = 32;
+
+    // 写合并最多等待多久（微秒），0表示不等待，只合并同一时刻到达IO线程的请求
+    @Builder.Default
+    private long batchWindowMicros = 0;
+
+    // 发送时使用的序列化方式，默认hessian，其它编号见Serializer；接收方按帧头中的编号反序列化，两端可以不同
+    @Builder.Default
+    private int serializerType = 2;
+
+    // 发送时使用的压缩方式，0表示不压缩，其它编号见Compressor
+    @Builder.Default
+    private int compressorType = 0;
+
+    // 序列化后的数据达到多少字节才压缩，小消息压缩得不偿失
+    @Builder.Default
+    private int compressThreshold = 8 * 1024;
+
+    public static ConnectionPoolConfig defaultConfig() {
+        return ConnectionPoolConfig.builder().build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.jinhua.myRPC.client;
+
+import io.netty.channel.Channel;
+import io.netty.channel.pool.ChannelPoolHandler;
+import lombok.AllArgsConstructor;
+
+/**
+ * 连接池中的连接在创建时初始化pipeline，借出和归还时不做额外处理
+ */
+@AllArgsConstructor
+public class NettyChannelPoolHandler implements ChannelPoolHandler {
+    // 连接池配置，包括空闲超时和写合并
+    private ConnectionPoolConfig config;
+
+    @Override
+    public void channelCreated(Channel ch) throws Exception {
+        ch.pipeline().addLast(new NettyClientInitializer(config));
+    }
+
+    @Override
+    public void channelAcquired(Channel ch) throws Exception {
+    }
+
+    @Override
+    public void channelReleased(Channel ch) throws Exception {
+    }
+}
@@ -1,16 +1,52 @@
 package com.jinhua.myRPC.client;
 
+import com.jinhua.myRPC.codec.StreamFrame;
 import com.jinhua.myRPC.common.RPCResponse;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.util.AttributeKey;
+import io.netty.handler.timeout.IdleStateEvent;
 
 public class NettyClientHandler extends SimpleChannelInboundHandler<RPCResponse> {
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RPCResponse rpcResponse) throws Exception {
-        // 接收到response,给channele设计别名，让sendRequest通过key值取对应的response
-        AttributeKey<RPCResponse> key = AttributeKey.valueOf("RPCResponse");
-        ctx.channel().attr(key).set(rpcResponse);
-        ctx.channel().close();
+        // 接收到response，按requestId唤醒等待的请求，连接保持打开，继续给后面的请求复用
+        ctx.channel().attr(PendingRequests.KEY).get().complete(rpcResponse);
+    }
+
+    // 流式调用的元素和结束消息交给对应的RPCStream，其它消息按普通响应处理
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof StreamFrame) {
+            ctx.channel().attr(PendingRequests.KEY).get().onStream((StreamFrame) msg);
+            return;
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 连接断开时，还在等待的请求直接失败，避免一直阻塞
+        ctx.channel().attr(PendingRequests.KEY).get()
+                .failAll(new IllegalStateException("连接已关闭：" + ctx.channel().remoteAddress()));
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        // 长时间空闲且没有等待中请求的连接关闭掉，连接池获取时健康检查会剔除它
+        if (evt instanceof IdleStateEvent) {
+            if (ctx.channel().attr(PendingRequests.KEY).get().size() == 0) {
+                System.out.println("连接空闲超时，关闭连接" + ctx.channel().remoteAddress());
+                ctx.close();
+            }
+        } else {
+            super.userEventTriggered(ctx, evt);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        cause.printStackTrace();
+        ctx.close();
     }
 }
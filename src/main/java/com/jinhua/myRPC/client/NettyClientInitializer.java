@@ -4,6 +4,7 @@ import com.jinhua.myRPC.codec.*;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.timeout.IdleStateHandler;
 import lombok.AllArgsConstructor;
 
 /**
@@ -11,13 +12,24 @@ import lombok.AllArgsConstructor;
  */
 @AllArgsConstructor
 public class NettyClientInitializer extends ChannelInitializer<SocketChannel> {
+    // 连接池配置，包括空闲超时和写合并
+    private ConnectionPoolConfig config;
+
     @Override
     protected void initChannel(SocketChannel socketChannel) throws Exception {
+        // 连接上等待响应的请求表
+        socketChannel.attr(PendingRequests.KEY).set(new PendingRequests());
+        // 连接上的写合并
+        socketChannel.attr(WriteBatcher.KEY).set(
+                new WriteBatcher(socketChannel, config.getBatchMaxMessages(), config.getBatchWindowMicros()));
         ChannelPipeline pipeline = socketChannel.pipeline();
+        // 空闲检测，长连接长时间没有读写就由NettyClientHandler关闭
+        pipeline.addLast(new IdleStateHandler(0, 0, config.getIdleTimeoutSeconds()));
         // 使用自定义的编解码器
         pipeline.addLast(new MyDecode());
         // 编码需要传入序列化器
-        pipeline.addLast(new MyEncode(new HessianSerializer()));
+        pipeline.addLast(new MyEncode(Serializer.getSerializerByCode(config.getSerializerType()),
+                Compressor.getCompressorByCode(config.getCompressorType()), config.getCompressThreshold()));
         pipeline.addLast(new NettyClientHandler());
     }
 }
@@ -1,56 +1,123 @@
 package com.jinhua.myRPC.client;
 
+import com.jinhua.myRPC.LoadBalance.ServerStats;
+import com.jinhua.myRPC.codec.Serializer;
+import com.jinhua.myRPC.codec.StreamFrame;
 import com.jinhua.myRPC.common.RPCRequest;
 import com.jinhua.myRPC.common.RPCResponse;
+import com.jinhua.myRPC.common.TransportConfig;
+import com.jinhua.myRPC.metrics.MethodMetrics;
+import com.jinhua.myRPC.metrics.RPCMetrics;
 import com.jinhua.myRPC.register.ServiceRegister;
-import com.jinhua.myRPC.register.ZkServiceRegister;
+import com.jinhua.myRPC.register.ServiceRegistries;
 import io.netty.channel.Channel;
-import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.util.AttributeKey;
+import io.netty.channel.pool.AbstractChannelPoolMap;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.FutureListener;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class NettyRPCClient implements RPCClient{
-    // 客户端与服务端通道初始化
-    private static final Bootstrap bootstrap;
+    // 默认配置的客户端共用的通道初始化
+    private static final Bootstrap sharedBootstrap;
 
-    // 用于处理客户端通道的所有事件
-    private static final EventLoopGroup eventLoopGroup;
+    // 默认配置的客户端共用，用于处理客户端通道的所有事件
+    private static final EventLoopGroup sharedEventLoopGroup;
+
+    // 所有客户端共用的超时计时器，时间轮的精度足够判断RPC超时，大量请求同时等待时开销也很小
+    private static final HashedWheelTimer TIMEOUT_TIMER =
+            new HashedWheelTimer(new DefaultThreadFactory("rpc-timeout", true), 10, TimeUnit.MILLISECONDS);
+
+    // 本客户端使用的通道初始化
+    private final Bootstrap bootstrap;
+
+    // 请求没有指定超时时间时使用的超时时间（毫秒）
+    private final long requestTimeoutMillis;
+
+    // 流式调用的信用窗口
+    private final int streamWindow;
+
+    // 指定了传输配置的客户端自己创建的IO线程组，关闭客户端时一起关闭
+    private final EventLoopGroup ownEventLoopGroup;
 
-    private String host;
-    private int port;
     private ServiceRegister serviceRegister;
+
+    // 每个服务地址一个连接池，连接建立后一直复用，不再每次请求都握手
+    private final AbstractChannelPoolMap<InetSocketAddress, FixedChannelPool> poolMap;
+
     public NettyRPCClient() {
-        this.serviceRegister = new ZkServiceRegister();
+        this(ConnectionPoolConfig.defaultConfig());
+    }
+
+    public NettyRPCClient(ConnectionPoolConfig config) {
+        // 使用进程内共享的注册中心
+        this(config, ServiceRegistries.getDefault());
+    }
+
+    public NettyRPCClient(ConnectionPoolConfig config, ServiceRegister serviceRegister) {
+        this(config, serviceRegister, null);
     }
+
+    // transportConfig为null时使用共享的IO线程组
+    public NettyRPCClient(ConnectionPoolConfig config, ServiceRegister serviceRegister, TransportConfig transportConfig) {
+        // 窗口为0时服务端一个元素也不会发送，流式调用只能等到超时
+        if (config.getStreamWindow() <= 0) {
+            throw new IllegalArgumentException("流式调用的信用窗口必须大于0：" + config.getStreamWindow());
+        }
+        if (Serializer.getSerializerByCode(config.getSerializerType()) == null) {
+            throw new IllegalArgumentException("不存在的序列化方式：" + config.getSerializerType());
+        }
+        this.serviceRegister = serviceRegister;
+        this.requestTimeoutMillis = config.getRequestTimeoutMillis();
+        this.streamWindow = config.getStreamWindow();
+        if (transportConfig == null) {
+            this.ownEventLoopGroup = null;
+            this.bootstrap = sharedBootstrap;
+        } else {
+            this.ownEventLoopGroup = transportConfig.newEventLoopGroup(transportConfig.getWorkerThreads(), "rpc-client");
+            this.bootstrap = newBootstrap(ownEventLoopGroup, transportConfig);
+        }
+        this.poolMap = new AbstractChannelPoolMap<InetSocketAddress, FixedChannelPool>() {
+            @Override
+            protected FixedChannelPool newPool(InetSocketAddress address) {
+                // 获取连接时检查连接是否存活，归还时也检查，断开的连接直接丢弃
+                return new FixedChannelPool(bootstrap.clone().remoteAddress(address),
+                        new NettyChannelPoolHandler(config),
+                        ChannelHealthChecker.ACTIVE, FixedChannelPool.AcquireTimeoutAction.FAIL,
+                        config.getAcquireTimeoutMillis(), config.getMaxConnections(),
+                        config.getMaxPendingAcquires(), true);
+            }
+        };
+    }
+
     // netty客户端初始化，通道初始化
     static {
-        eventLoopGroup = new NioEventLoopGroup();
-        bootstrap = new Bootstrap();
-        bootstrap.group(eventLoopGroup).channel(NioSocketChannel.class)
-                .handler(new NettyClientInitializer());
+        TransportConfig transportConfig = TransportConfig.defaultConfig();
+        sharedEventLoopGroup = transportConfig.newEventLoopGroup(transportConfig.getWorkerThreads(), "rpc-client");
+        sharedBootstrap = newBootstrap(sharedEventLoopGroup, transportConfig);
     }
+
+    private static Bootstrap newBootstrap(EventLoopGroup eventLoopGroup, TransportConfig transportConfig) {
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(eventLoopGroup).channel(transportConfig.channelClass());
+        transportConfig.apply(bootstrap);
+        return bootstrap;
+    }
+
     @Override
     public RPCResponse sendRequest(RPCRequest request) {
-        // 通过接口名字找到服务地址
-        InetSocketAddress address = serviceRegister.serviceDiscovery(request.getInterfaceName(), request);
-        host = address.getHostName();
-        port = address.getPort();
         try {
-            // 阻塞等待连接建立
-            ChannelFuture channelFuture  = bootstrap.connect(host, port).syncUninterruptibly();
-            Channel channel = channelFuture.channel();
-            // 发送数据
-            channel.writeAndFlush(request);
-            channel.closeFuture().syncUninterruptibly();
-            // 阻塞的获得结果，通过给channel设计别名，获取特定名字下的channel中的内容（这个在hanlder中设置）
-            // AttributeKey是，线程隔离的，不会由线程安全问题。
-            AttributeKey<RPCResponse> key = AttributeKey.valueOf("RPCResponse");
-            RPCResponse response = channel.attr(key).get();
+            // 同步调用就是阻塞等待异步调用的结果
+            RPCResponse response = sendRequestAsync(request).get();
 
             System.out.println(response);
             return response;
@@ -59,4 +126,160 @@ public class NettyRPCClient implements RPCClient{
         }
         return null;
     }
+
+    @Override
+    public CompletableFuture<RPCResponse> sendRequestAsync(RPCRequest request) {
+        CompletableFuture<RPCResponse> future = new CompletableFuture<>();
+        // 通过接口名字找到服务地址
+        InetSocketAddress address = serviceRegister.serviceDiscovery(request.getInterfaceName(), request);
+        // 没有可用的服务提供者，或者注册中心不可达且没有缓存，调用以异常结束，不在调用线程上抛出
+        if (address == null) {
+            future.completeExceptionally(noProvider(request));
+            return future;
+        }
+        FixedChannelPool pool = poolMap.get(address);
+        // 统计这个地址上正在处理的请求数和响应时间，供负载均衡使用
+        ServerStats stats = ServerStats.of(address);
+        long startNanos = stats.begin();
+        // 按接口和方法统计调用次数、错误和耗时
+        MethodMetrics metrics = RPCMetrics.client(request.getInterfaceName(), request.getMethodName());
+        metrics.begin();
+        future.whenComplete((response, cause) -> {
+            stats.end(startNanos);
+            metrics.end(startNanos, cause == null && response.getCode() == 200);
+        });
+        // 分配请求id，收到response时由NettyClientHandler按id在IO线程上完成future
+        long requestId = PendingRequests.nextRequestId();
+        request.setRequestId(requestId);
+        // 超时后请求以超时响应结束，超时时间随请求发给服务端，服务端不再执行已经超时的请求
+        if (request.getTimeout() <= 0) {
+            request.setTimeout(requestTimeoutMillis);
+        }
+        // 超时截止时间在发起调用时确定，等待连接的时间也计入超时
+        long deadlineNanos = request.getTimeout() > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(request.getTimeout()) : 0;
+        if (request.getTimeout() > 0) {
+            Timeout timeout = TIMEOUT_TIMER.newTimeout(t -> {
+                RPCResponse response = RPCResponse.timeout();
+                response.setRequestId(requestId);
+                future.complete(response);
+            }, request.getTimeout(), TimeUnit.MILLISECONDS);
+            future.whenComplete((response, cause) -> timeout.cancel());
+        }
+        // 从连接池借一个连接，池中没有可用连接时才新建，超过上限则排队等待，整个过程不阻塞调用线程
+        pool.acquire().addListener((FutureListener<Channel>) acquireFuture -> {
+            if (!acquireFuture.isSuccess()) {
+                future.completeExceptionally(acquireFuture.cause());
+                return;
+            }
+            Channel channel = acquireFuture.getNow();
+            metrics.recordQueue(System.nanoTime() - startNanos);
+            try {
+                // 等待连接期间已经超时，不再发送
+                if (future.isDone()) {
+                    return;
+                }
+                // 发给服务端的是剩余的超时时间，剩余时间不足1ms时直接以超时结束
+                if (deadlineNanos != 0) {
+                    long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                    if (remainingMillis <= 0) {
+                        RPCResponse response = RPCResponse.timeout();
+                        response.setRequestId(requestId);
+                        future.complete(response);
+                        return;
+                    }
+                    request.setTimeout(Math.max(1, remainingMillis));
+                }
+                // 在连接的等待表中登记，请求因为超时等原因提前结束时从等待表中移除
+                PendingRequests pendingRequests = channel.attr(PendingRequests.KEY).get();
+                pendingRequests.put(requestId, future);
+                future.whenComplete((response, cause) -> pendingRequests.remove(requestId));
+                // 发送数据，由WriteBatcher合并flush，发送失败时对应请求直接失败
+                channel.attr(WriteBatcher.KEY).get().write(request).addListener((ChannelFutureListener) f -> {
+                    if (!f.isSuccess()) {
+                        pendingRequests.fail(requestId, f.cause());
+                    }
+                });
+            } finally {
+                // 写出后立即归还连接，等待响应期间其它请求可以复用同一个连接
+                pool.release(channel);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public boolean isStreamingSupported() {
+        return true;
+    }
+
+    // 流式调用：请求发出后立即给服务端一个窗口的信用，之后由RPCStream随消费补充
+    // 超时时间用作等待每个元素的超时时间，服务端也据此判断请求在排队时是否已经超时
+    @Override
+    public <T> RPCStream<T> sendStream(RPCRequest request) {
+        InetSocketAddress address = serviceRegister.serviceDiscovery(request.getInterfaceName(), request);
+        long requestId = PendingRequests.nextRequestId();
+        request.setRequestId(requestId);
+        if (request.getTimeout() <= 0) {
+            request.setTimeout(requestTimeoutMillis);
+        }
+        // 没有可用的服务提供者时返回一个读取时抛出异常的流
+        if (address == null) {
+            RPCStream<T> stream = new RPCStream<>(requestId, streamWindow, request.getTimeout(), success -> {
+            });
+            stream.onError(noProvider(request));
+            return stream;
+        }
+        FixedChannelPool pool = poolMap.get(address);
+        // 整个流读完、出错或者被关闭才算调用结束；负载均衡只统计正在进行的流，流的持续时间不作为响应时间
+        ServerStats stats = ServerStats.of(address);
+        long startNanos = stats.begin();
+        MethodMetrics metrics = RPCMetrics.client(request.getInterfaceName(), request.getMethodName());
+        metrics.begin();
+        RPCStream<T> stream = new RPCStream<>(requestId, streamWindow, request.getTimeout(), success -> {
+            stats.endStream();
+            metrics.end(startNanos, success);
+        });
+        pool.acquire().addListener((FutureListener<Channel>) acquireFuture -> {
+            if (!acquireFuture.isSuccess()) {
+                stream.onError(acquireFuture.cause());
+                return;
+            }
+            Channel channel = acquireFuture.getNow();
+            metrics.recordQueue(System.nanoTime() - startNanos);
+            try {
+                PendingRequests pendingRequests = channel.attr(PendingRequests.KEY).get();
+                pendingRequests.putStream(requestId, stream);
+                stream.bind(channel);
+                WriteBatcher writeBatcher = channel.attr(WriteBatcher.KEY).get();
+                writeBatcher.write(request).addListener((ChannelFutureListener) f -> {
+                    if (!f.isSuccess()) {
+                        pendingRequests.removeStream(requestId);
+                        stream.onError(f.cause());
+                    }
+                });
+                writeBatcher.write(StreamFrame.credit(requestId, streamWindow));
+            } finally {
+                // 流式调用不独占连接，元素和其它请求的响应在同一个连接上交错返回
+                pool.release(channel);
+            }
+        });
+        return stream;
+    }
+
+    // 找不到服务地址时调用失败的原因，同时计入这个方法的错误数
+    private static IllegalStateException noProvider(RPCRequest request) {
+        MethodMetrics metrics = RPCMetrics.client(request.getInterfaceName(), request.getMethodName());
+        metrics.begin();
+        metrics.fail();
+        return new IllegalStateException("没有可用的服务提供者：" + request.getInterfaceName());
+    }
+
+    // 关闭所有连接池，以及本客户端自己的IO线程组
+    public void close() {
+        poolMap.close();
+        if (ownEventLoopGroup != null) {
+            ownEventLoopGroup.shutdownGracefully();
+        }
+    }
 }
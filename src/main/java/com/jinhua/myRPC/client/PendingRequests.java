@@ -0,0 +1,103 @@
+package com.jinhua.myRPC.client;
+
+import com.jinhua.myRPC.codec.MessageType;
+import com.jinhua.myRPC.codec.StreamFrame;
+import com.jinhua.myRPC.common.RPCResponse;
+import com.jinhua.myRPC.metrics.RPCMetrics;
+import io.netty.util.AttributeKey;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个连接上所有还没收到响应的请求，按requestId索引
+ * 同一个连接可以同时发出多个请求，响应可以乱序返回；流式调用在结束前一直登记在这里
+ */
+public class PendingRequests {
+    // 每个连接在初始化时绑定一个PendingRequests
+    public static final AttributeKey<PendingRequests> KEY = AttributeKey.valueOf("PendingRequests");
+
+    // 进程内全局递增的请求id
+    private static final AtomicLong ID_GENERATOR = new AtomicLong();
+
+    private final Map<Long, CompletableFuture<RPCResponse>> futures = new ConcurrentHashMap<>();
+
+    // 还没有结束的流式调用
+    private final Map<Long, RPCStream<?>> streams = new ConcurrentHashMap<>();
+
+    public static long nextRequestId() {
+        return ID_GENERATOR.incrementAndGet();
+    }
+
+    // 登记一个等待响应的请求
+    public void put(long requestId, CompletableFuture<RPCResponse> future) {
+        futures.put(requestId, future);
+    }
+
+    // 收到响应，唤醒对应的请求
+    public void complete(RPCResponse response) {
+        CompletableFuture<RPCResponse> future = futures.remove(response.getRequestId());
+        if (future != null) {
+            future.complete(response);
+        } else {
+            // 请求已经超时或者失败，响应丢弃；这里在IO线程上，只计数不打印
+            RPCMetrics.recordLateResponse();
+        }
+    }
+
+    // 登记一个流式调用
+    public void putStream(long requestId, RPCStream<?> stream) {
+        streams.put(requestId, stream);
+    }
+
+    public void removeStream(long requestId) {
+        streams.remove(requestId);
+    }
+
+    // 收到流式调用的元素或者结束消息
+    public void onStream(StreamFrame frame) {
+        RPCStream<?> stream = frame.getType() == MessageType.STREAM_END
+                ? streams.remove(frame.getRequestId()) : streams.get(frame.getRequestId());
+        if (stream == null) {
+            // 客户端已经取消，取消消息到达服务端之前发出的元素直接丢弃
+            return;
+        }
+        if (frame.getType() == MessageType.STREAM_DATA) {
+            stream.onData(frame.getResponse().getData());
+        } else if (frame.getType() == MessageType.STREAM_END) {
+            stream.onEnd(frame.getResponse());
+        }
+    }
+
+    // 单个请求失败，例如发送失败
+    public void fail(long requestId, Throwable cause) {
+        CompletableFuture<RPCResponse> future = futures.remove(requestId);
+        if (future != null) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    // 请求已经在别处结束（例如超时），不再等待它的响应
+    public void remove(long requestId) {
+        futures.remove(requestId);
+    }
+
+    // 连接断开时，这个连接上的请求和流式调用全部失败
+    public void failAll(Throwable cause) {
+        for (Long requestId : futures.keySet()) {
+            fail(requestId, cause);
+        }
+        for (Long requestId : streams.keySet()) {
+            RPCStream<?> stream = streams.remove(requestId);
+            if (stream != null) {
+                stream.onError(cause);
+            }
+        }
+    }
+
+    public int size() {
+        return futures.size() + streams.size();
+    }
+}
@@ -3,7 +3,25 @@ package com.jinhua.myRPC.client;
 import com.jinhua.myRPC.common.RPCRequest;
 import com.jinhua.myRPC.common.RPCResponse;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface RPCClient {
     // 客户端接口，功能发送RPCRequest请求，访问服务器得到RPCResponse
     RPCResponse sendRequest(RPCRequest request);
+
+    // 异步发送请求，返回的future在收到响应时完成
+    // 默认实现直接同步调用，适用于阻塞式的客户端
+    default CompletableFuture<RPCResponse> sendRequestAsync(RPCRequest request) {
+        return CompletableFuture.completedFuture(sendRequest(request));
+    }
+
+    // 是否支持流式调用，不支持时RPCClientProxy拒绝为含有返回Iterator的方法的接口创建代理
+    default boolean isStreamingSupported() {
+        return false;
+    }
+
+    // 流式调用，服务端逐个发送结果中的元素，只有Netty客户端支持
+    default <T> RPCStream<T> sendStream(RPCRequest request) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + "不支持流式调用");
+    }
 }
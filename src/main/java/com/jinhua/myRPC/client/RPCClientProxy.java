@@ -1,32 +1,131 @@
 package com.jinhua.myRPC.client;
 
+import com.jinhua.myRPC.common.RPCCacheable;
+import com.jinhua.myRPC.common.RPCContext;
 import com.jinhua.myRPC.common.RPCRequest;
 import com.jinhua.myRPC.common.RPCResponse;
+import com.jinhua.myRPC.common.RPCTimeout;
+import com.jinhua.myRPC.metrics.MethodMetrics;
+import com.jinhua.myRPC.metrics.RPCMetrics;
 import lombok.AllArgsConstructor;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @AllArgsConstructor
 public class RPCClientProxy implements InvocationHandler {
 
     private  RPCClient client;
 
+    // 方法 -> 标注的超时时间，0表示没有标注
+    private static final Map<Method, Long> TIMEOUTS = new ConcurrentHashMap<>();
+
+    // 方法 -> 结果缓存，没有标注RPCCacheable的方法为空
+    private final Map<Method, Optional<ResultCache>> caches = new ConcurrentHashMap<>();
+
     // jdk动态代理，每次代理对象调用方法，会经过此方法增强
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        // request的构建
-        RPCRequest request = RPCRequest.builder().interfaceName(method.getDeclaringClass().getName())
-                .methodName(method.getName())
-                .params(args).paramsTypes(method.getParameterTypes()).build();
+        ResultCache cache = cacheOf(method);
+        if (cache != null) {
+            return invokeCached(cache, method, args);
+        }
+        return call(method, args);
+    }
+
+    // 命中缓存时直接返回，不走网络；没有命中时调用并缓存成功的结果
+    private Object invokeCached(ResultCache cache, Method method, Object[] args) {
+        MethodMetrics metrics = RPCMetrics.client(method.getDeclaringClass().getName(), method.getName());
+        Object cached = cache.get(args);
+        boolean async = method.getReturnType() == CompletableFuture.class;
+        if (cached != ResultCache.MISS) {
+            metrics.recordCacheHit();
+            return async ? CompletableFuture.completedFuture(cached) : cached;
+        }
+        metrics.recordCacheMiss();
+        RPCRequest request = buildRequest(method, args);
+        if (async) {
+            return client.sendRequestAsync(request).thenApply(response -> {
+                if (response.getCode() == 200) {
+                    cache.put(args, response.getData());
+                }
+                return response.getData();
+            });
+        }
+        RPCResponse rpcResponse = client.sendRequest(request);
+        if (rpcResponse.getCode() == 200) {
+            cache.put(args, rpcResponse.getData());
+        }
+        return rpcResponse.getData();
+    }
+
+    private Object call(Method method, Object[] args) {
+        RPCRequest request = buildRequest(method, args);
+        // 返回值是Iterator的方法走流式调用，结果逐个读取
+        if (method.getReturnType() == Iterator.class) {
+            return client.sendStream(request);
+        }
+        // 返回值是CompletableFuture的方法走异步调用，不阻塞调用线程，结果在IO线程上回调
+        if (method.getReturnType() == CompletableFuture.class) {
+            return client.sendRequestAsync(request).thenApply(RPCResponse::getData);
+        }
         // 数据传输
         RPCResponse rpcResponse = client.sendRequest(request);
         return rpcResponse.getData();
     }
 
+    // request的构建
+    private static RPCRequest buildRequest(Method method, Object[] args) {
+        return RPCRequest.builder().interfaceName(method.getDeclaringClass().getName())
+                .methodName(method.getName())
+                .params(args).paramsTypes(method.getParameterTypes())
+                .timeout(timeoutOf(method)).build();
+    }
+
+    private ResultCache cacheOf(Method method) {
+        return caches.computeIfAbsent(method, m -> {
+            RPCCacheable annotation = m.getAnnotation(RPCCacheable.class);
+            // 流式调用的结果只能读一次，不缓存
+            return annotation == null || m.getReturnType() == Iterator.class ? Optional.empty()
+                    : Optional.of(new ResultCache(annotation.ttlMillis(), annotation.maxSize()));
+        }).orElse(null);
+    }
+
+    // 方法或接口上标注的超时时间；在服务方法里发起的调用不能超过上游请求剩余的时间
+    private static long timeoutOf(Method method) {
+        long timeout = TIMEOUTS.computeIfAbsent(method, m -> {
+            RPCTimeout annotation = m.getAnnotation(RPCTimeout.class);
+            if (annotation == null) {
+                annotation = m.getDeclaringClass().getAnnotation(RPCTimeout.class);
+            }
+            return annotation == null ? 0L : annotation.value();
+        });
+        long remaining = RPCContext.remainingMillis();
+        if (remaining < 0) {
+            return timeout;
+        }
+        // 上游剩余时间已经用完时仍然给1毫秒，由超时机制让这次调用立即失败
+        remaining = Math.max(remaining, 1);
+        return timeout > 0 ? Math.min(timeout, remaining) : remaining;
+    }
+
     // client代理对象
+    // 客户端不支持流式调用时，接口里有返回Iterator的方法就直接拒绝，不等到调用时才失败
     <T>T getProxy(Class<T> clazz) {
+        if (!client.isStreamingSupported()) {
+            for (Method method : clazz.getMethods()) {
+                if (method.getReturnType() == Iterator.class) {
+                    throw new UnsupportedOperationException(client.getClass().getSimpleName()
+                            + "不支持流式调用：" + clazz.getName() + "." + method.getName());
+                }
+            }
+        }
         Object o = Proxy.newProxyInstance(clazz.getClassLoader(), new Class[]{clazz}, this);
         return (T)o;
     }
@@ -0,0 +1,165 @@
+package com.jinhua.myRPC.client;
+
+import com.jinhua.myRPC.codec.StreamFrame;
+import com.jinhua.myRPC.common.RPCResponse;
+import io.netty.channel.Channel;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 流式调用的结果，按服务端发送的顺序逐个读取元素，读完或者调用close后结束
+ * 基于信用的流量控制：服务端最多比客户端多发送window个元素，客户端每消费掉半个窗口再补充信用，
+ * 所以无论结果有多大，两端同时在内存中的元素都不超过一个窗口
+ * 迭代器只能在一个线程中使用；没有读完就不再需要时必须调用close，通知服务端停止发送
+ */
+public class RPCStream<T> implements Iterator<T>, AutoCloseable {
+    // 队列中的结束标记
+    private static final Object END = new Object();
+
+    private final long requestId;
+
+    private final int window;
+
+    // 等待下一个元素的最长时间（毫秒），0表示一直等待
+    private final long timeoutMillis;
+
+    // IO线程放入元素、结束标记或者异常，消费线程取出
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+    // 发起调用的连接，信用和取消消息都要发到这个连接上
+    private volatile Channel channel;
+
+    // 已经取出还没有返回给调用方的元素
+    private Object next = END;
+
+    // 上次补充信用之后消费的元素个数
+    private int consumed;
+
+    private boolean finished;
+
+    // 流结束时调用一次，参数表示是否正常结束，调用方主动关闭也算正常结束
+    private final Consumer<Boolean> onFinish;
+
+    RPCStream(long requestId, int window, long timeoutMillis, Consumer<Boolean> onFinish) {
+        this.requestId = requestId;
+        this.window = window;
+        this.timeoutMillis = timeoutMillis;
+        this.onFinish = onFinish;
+    }
+
+    // 请求发出后绑定连接
+    void bind(Channel channel) {
+        this.channel = channel;
+    }
+
+    // 以下三个方法在IO线程上调用
+    void onData(Object element) {
+        queue.add(new Element(element));
+    }
+
+    void onEnd(RPCResponse result) {
+        if (result.getCode() != 200) {
+            queue.add(new IllegalStateException("流式调用失败：" + result.getMessage()));
+        } else {
+            queue.add(END);
+        }
+    }
+
+    void onError(Throwable cause) {
+        queue.add(cause);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != END) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        Object item;
+        try {
+            item = timeoutMillis > 0 ? queue.poll(timeoutMillis, TimeUnit.MILLISECONDS) : queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(false);
+            throw new IllegalStateException("等待流式调用的结果时被中断", e);
+        }
+        if (item == null) {
+            cancel(false);
+            throw new IllegalStateException("流式调用超时，" + timeoutMillis + "毫秒内没有收到数据");
+        }
+        if (item == END) {
+            finish(true);
+            return false;
+        }
+        if (item instanceof Throwable) {
+            finish(false);
+            throw new IllegalStateException("流式调用失败", (Throwable) item);
+        }
+        next = ((Element) item).value;
+        // 消费掉半个窗口再补充信用，不用每个元素都发一次
+        if (++consumed >= Math.max(window / 2, 1)) {
+            send(StreamFrame.credit(requestId, consumed));
+            consumed = 0;
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object value = next;
+        next = END;
+        return (T) value;
+    }
+
+    // 提前结束，服务端停止发送，已经收到的元素丢弃
+    @Override
+    public void close() {
+        cancel(true);
+    }
+
+    private void cancel(boolean success) {
+        if (finished) {
+            return;
+        }
+        send(StreamFrame.cancel(requestId));
+        finish(success);
+        queue.clear();
+    }
+
+    private void finish(boolean success) {
+        finished = true;
+        next = END;
+        Channel c = channel;
+        if (c != null) {
+            c.attr(PendingRequests.KEY).get().removeStream(requestId);
+        }
+        onFinish.accept(success);
+    }
+
+    private void send(StreamFrame frame) {
+        Channel c = channel;
+        if (c != null && c.isActive()) {
+            c.attr(WriteBatcher.KEY).get().write(frame);
+        }
+    }
+
+    // 元素本身可能为null，包装一层和结束标记、异常区分开
+    private static class Element {
+        private final Object value;
+
+        Element(Object value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.jinhua.myRPC.client;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 客户端的结果缓存，一个标注了RPCCacheable的方法一个实例
+ * key是参数值本身，按equals/hashCode比较；读取不加锁，超过容量时按二次机会（CLOCK）近似LRU淘汰
+ */
+class ResultCache {
+    // 没有命中，null也是合法的返回值，不能用null表示
+    static final Object MISS = new Object();
+
+    private final long ttlNanos;
+
+    private final int maxSize;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    // 按加入顺序排列的key，和entries中的key一一对应，淘汰时从队头取
+    private final Queue<Key> order = new ConcurrentLinkedQueue<>();
+
+    ResultCache(long ttlMillis, int maxSize) {
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.maxSize = maxSize;
+    }
+
+    // 命中时只在第一次访问时写访问标记，热点key被并发读取时不反复写同一个缓存行
+    Object get(Object[] args) {
+        Entry entry = entries.get(new Key(args));
+        if (entry == null || entry.isExpired()) {
+            return MISS;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.value;
+    }
+
+    // 过期的条目不在读取时删除，由之后的put覆盖或者淘汰时优先移除
+    void put(Object[] args, Object value) {
+        Key key = new Key(args);
+        if (entries.put(key, new Entry(value, System.nanoTime() + ttlNanos)) == null) {
+            order.offer(key);
+            if (entries.size() > maxSize) {
+                evict();
+            }
+        }
+    }
+
+    // 从最早加入的key开始，被访问过且没有过期的清除标记后放回队尾，否则淘汰
+    private synchronized void evict() {
+        while (entries.size() > maxSize) {
+            Key key = order.poll();
+            if (key == null) {
+                return;
+            }
+            Entry entry = entries.get(key);
+            if (entry.referenced && !entry.isExpired()) {
+                entry.referenced = false;
+                order.offer(key);
+            } else {
+                entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 参数列表作为key，拷贝一份数组，调用方之后替换数组元素不影响缓存
+     */
+    private static class Key {
+        private final Object[] args;
+        private final int hash;
+
+        Key(Object[] args) {
+            this.args = args == null ? new Object[0] : args.clone();
+            this.hash = Arrays.deepHashCode(this.args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && hash == ((Key) o).hash && Arrays.deepEquals(args, ((Key) o).args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long expireAt;
+        // 加入队列后是否被访问过
+        private volatile boolean referenced;
+
+        Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expireAt >= 0;
+        }
+    }
+}
@@ -3,7 +3,7 @@ package com.jinhua.myRPC.client;
 import com.jinhua.myRPC.common.RPCRequest;
 import com.jinhua.myRPC.common.RPCResponse;
 import com.jinhua.myRPC.register.ServiceRegister;
-import com.jinhua.myRPC.register.ZkServiceRegister;
+import com.jinhua.myRPC.register.ServiceRegistries;
 
 import java.io.IOError;
 import java.io.IOException;
@@ -22,8 +22,12 @@ public class SimpleRPCClient implements RPCClient{
     private ServiceRegister serviceRegister;
 
     public SimpleRPCClient() {
-        // 初始化zk
-        this.serviceRegister = new ZkServiceRegister();
+        // 使用进程内共享的注册中心
+        this(ServiceRegistries.getDefault());
+    }
+
+    public SimpleRPCClient(ServiceRegister serviceRegister) {
+        this.serviceRegister = serviceRegister;
     }
 
     // Socket建立连接，发起请求Request,得到响应Response
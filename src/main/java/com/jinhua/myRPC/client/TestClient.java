@@ -5,6 +5,8 @@ import com.jinhua.myRPC.common.User;
 import com.jinhua.myRPC.service.BlogService;
 import com.jinhua.myRPC.service.UserService;
 
+import java.util.Iterator;
+
 public class TestClient {
     public static void main(String[] args) {
         // 构建socket传输的客户端
@@ -16,6 +18,9 @@ public class TestClient {
         User userByUserId = userService.getUserByUserId(10);
         System.out.println("从服务端得到的user为：" + userByUserId);
 
+        // 异步调用，不阻塞当前线程
+        userService.getUserByUserIdAsync(11).thenAccept(u -> System.out.println("异步得到的user为：" + u));
+
         User user = User.builder().userName("张三").id(100).sex(true).build();
         Integer integer = userService.insertUserId(user);
         System.out.println("向服务端插入数据："+integer);
@@ -32,6 +37,14 @@ public class TestClient {
 
         Blog blogById = blogService.getBlogById(10000);
         System.out.println("从服务端得到的blog为：" + blogById);
+        // 流式调用，边接收边处理，读完之前不需要把所有博客放在内存里
+        Iterator<Blog> blogs = blogService.getBlogsByUserId(22, 1000);
+        int blogCount = 0;
+        while (blogs.hasNext()) {
+            blogs.next();
+            blogCount++;
+        }
+        System.out.println("流式调用得到的blog数量为：" + blogCount);
         // 测试json调用空参数方法
         System.out.println(userService.hello());
     }
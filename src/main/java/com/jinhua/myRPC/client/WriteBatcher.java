@@ -0,0 +1,78 @@
+package com.jinhua.myRPC.client;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.util.AttributeKey;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合并一个连接上的写出：请求只写入缓冲区，攒够maxMessages个或者等待windowMicros后一次flush，
+ * 多个请求共用一次系统调用，小请求很多时能明显提高单个连接的吞吐
+ * windowMicros为0时不额外等待，flush放到IO线程当前任务队列的末尾，同一时刻从多个线程发出的请求自然合并
+ */
+public class WriteBatcher {
+    // 每个连接在初始化时绑定一个WriteBatcher
+    public static final AttributeKey<WriteBatcher> KEY = AttributeKey.valueOf("WriteBatcher");
+
+    private final Channel channel;
+
+    // 攒够多少个请求立即flush，为1时每个请求单独flush
+    private final int maxMessages;
+
+    // 最多等待多久flush（微秒）
+    private final long windowMicros;
+
+    // 已写入但还没有flush的请求数，只在IO线程上读写
+    private int pending;
+
+    // 是否已经安排了一次flush，只在IO线程上读写
+    private boolean flushScheduled;
+
+    private final Runnable flushTask = this::flush;
+
+    public WriteBatcher(Channel channel, int maxMessages, long windowMicros) {
+        this.channel = channel;
+        this.maxMessages = maxMessages;
+        this.windowMicros = windowMicros;
+    }
+
+    // 写出一个请求，返回的future在真正写到socket后完成
+    public ChannelFuture write(Object msg) {
+        if (maxMessages <= 1) {
+            return channel.writeAndFlush(msg);
+        }
+        ChannelPromise promise = channel.newPromise();
+        EventLoop eventLoop = channel.eventLoop();
+        // 写入和安排flush都在IO线程上完成，保证安排的flush一定排在这次写入之后
+        if (eventLoop.inEventLoop()) {
+            doWrite(msg, promise);
+        } else {
+            eventLoop.execute(() -> doWrite(msg, promise));
+        }
+        return promise;
+    }
+
+    private void doWrite(Object msg, ChannelPromise promise) {
+        channel.write(msg, promise);
+        if (++pending >= maxMessages) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            if (windowMicros > 0) {
+                channel.eventLoop().schedule(flushTask, windowMicros, TimeUnit.MICROSECONDS);
+            } else {
+                channel.eventLoop().execute(flushTask);
+            }
+        }
+    }
+
+    private void flush() {
+        // 清除标记后，之后写入的请求会安排新的flush；提前触发的flush之后，已安排的flush执行时只是多一次空flush
+        flushScheduled = false;
+        pending = 0;
+        channel.flush();
+    }
+}
@@ -0,0 +1,23 @@
+package com.jinhua.myRPC.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 消息体的压缩算法，编号写在帧头中，接收方按编号解压
+ */
+public interface Compressor {
+    // 把in中全部可读数据压缩后写入out
+    void compress(ByteBuf in, ByteBuf out);
+
+    // 从in当前位置读取length个字节解压后写入out，解压后超过maxLength说明数据有问题，直接抛异常
+    void decompress(ByteBuf in, int length, ByteBuf out, int maxLength);
+
+    // 压缩器全局共享，实现必须是线程安全的
+    // 0:不压缩，1：deflate，2：gzip，3：snappy
+    int getType();
+
+    // 其它的压缩算法实现这个接口，并在CompressorRegistry中注册
+    static Compressor getCompressorByCode(int code) {
+        return CompressorRegistry.getCompressor(code);
+    }
+}
@@ -0,0 +1,49 @@
+package com.jinhua.myRPC.codec;
+
+import java.util.ServiceLoader;
+
+/**
+ * 压缩算法注册表，和SerializerRegistry一样按编号存放在数组中
+ * 编号0表示不压缩，不对应任何压缩器
+ */
+public class CompressorRegistry {
+    // 编号上限，帧头中压缩方式占1个字节
+    public static final int MAX_CODE = 256;
+
+    // 注册时整体替换数组，读取时不加锁
+    private static volatile Compressor[] compressors = new Compressor[MAX_CODE];
+
+    static {
+        register(new DeflateCompressor());
+        register(new GzipCompressor());
+        register(new SnappyCompressor());
+        // SPI 扩展的压缩算法
+        for (Compressor compressor : ServiceLoader.load(Compressor.class)) {
+            register(compressor);
+        }
+    }
+
+    // 注册压缩器，编号不能重复
+    public static synchronized void register(Compressor compressor) {
+        int code = compressor.getType();
+        if (code <= 0 || code >= MAX_CODE) {
+            throw new IllegalArgumentException("压缩方式编号超出范围：" + code);
+        }
+        Compressor[] current = compressors;
+        if (current[code] != null) {
+            throw new IllegalStateException("压缩方式编号" + code + "已被" + current[code].getClass().getName() + "占用");
+        }
+        Compressor[] updated = current.clone();
+        updated[code] = compressor;
+        compressors = updated;
+    }
+
+    // 根据编号取出压缩器，不存在时返回null
+    public static Compressor getCompressor(int code) {
+        Compressor[] current = compressors;
+        if (code <= 0 || code >= current.length) {
+            return null;
+        }
+        return current[code];
+    }
+}
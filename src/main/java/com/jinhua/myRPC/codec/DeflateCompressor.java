@@ -0,0 +1,100 @@
+package com.jinhua.myRPC.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * JDK的deflate压缩（zlib格式）
+ * Deflater和Inflater创建时会分配本地内存，每个线程复用一个，用之前reset
+ */
+public class DeflateCompressor implements Compressor {
+    // 不带zlib头尾的原始deflate流，GzipCompressor在外面自己加gzip的头尾
+    private final boolean nowrap;
+
+    private final ThreadLocal<Deflater> deflater;
+    private final ThreadLocal<Inflater> inflater;
+
+    // 每个线程复用的输入输出缓冲区
+    private static final ThreadLocal<byte[]> INPUT = ThreadLocal.withInitial(() -> new byte[8192]);
+    private static final ThreadLocal<byte[]> OUTPUT = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    public DeflateCompressor() {
+        this(false);
+    }
+
+    DeflateCompressor(boolean nowrap) {
+        this.nowrap = nowrap;
+        // 默认压缩级别6在压缩率和速度之间比较均衡，RPC消息更看重速度，使用级别1
+        this.deflater = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, nowrap));
+        this.inflater = ThreadLocal.withInitial(() -> new Inflater(nowrap));
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        Deflater deflater = this.deflater.get();
+        deflater.reset();
+        int length = in.readableBytes();
+        byte[] input = readableArray(in, length);
+        int offset = in.hasArray() ? in.arrayOffset() + in.readerIndex() : 0;
+        deflater.setInput(input, offset, length);
+        deflater.finish();
+        byte[] output = OUTPUT.get();
+        while (!deflater.finished()) {
+            int n = deflater.deflate(output);
+            out.writeBytes(output, 0, n);
+        }
+        in.skipBytes(length);
+    }
+
+    @Override
+    public void decompress(ByteBuf in, int length, ByteBuf out, int maxLength) {
+        Inflater inflater = this.inflater.get();
+        inflater.reset();
+        byte[] input = readableArray(in, length);
+        int offset = in.hasArray() ? in.arrayOffset() + in.readerIndex() : 0;
+        inflater.setInput(input, offset, length);
+        byte[] output = OUTPUT.get();
+        int total = 0;
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(output);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new CorruptedFrameException("压缩数据不完整");
+                }
+                total += n;
+                if (total > maxLength) {
+                    throw new TooLongFrameException("解压后的数据超出限制：" + maxLength);
+                }
+                out.writeBytes(output, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new CorruptedFrameException("压缩数据格式错误", e);
+        }
+        in.skipBytes(length - inflater.getRemaining());
+    }
+
+    // 堆内存直接返回底层数组，直接内存先拷贝到线程内的缓冲区
+    private static byte[] readableArray(ByteBuf in, int length) {
+        if (in.hasArray()) {
+            return in.array();
+        }
+        byte[] buffer = INPUT.get();
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+            INPUT.set(buffer);
+        }
+        in.getBytes(in.readerIndex(), buffer, 0, length);
+        return buffer;
+    }
+
+    // 1:代表deflate压缩
+    @Override
+    public int getType() {
+        return 1;
+    }
+}
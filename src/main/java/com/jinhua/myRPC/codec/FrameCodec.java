@@ -0,0 +1,170 @@
+package com.jinhua.myRPC.codec;
+
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+import com.jinhua.myRPC.metrics.RPCMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+
+/**
+ * 帧的编码与解码，帧格式见ProtocolConstant
+ * Netty的MyEncode/MyDecode和阻塞IO的服务端共用这里的逻辑，保证两边的协议一致
+ */
+public class FrameCodec {
+
+    // 把消息按帧格式写入out，不压缩
+    public static void encode(Object o, Serializer serializer, ByteBuf byteBuf) {
+        encode(o, serializer, null, Integer.MAX_VALUE, byteBuf);
+    }
+
+    // 把消息按帧格式写入out，序列化器直接写入out，最后回填数据长度
+    // compressor不为null且数据不小于compressThreshold时压缩数据，压缩后没有变小则仍然发送原始数据
+    public static void encode(Object o, Serializer serializer, Compressor compressor, int compressThreshold, ByteBuf byteBuf) {
+        int messageType;
+        long requestId;
+        if (o instanceof RPCRequest) {
+            messageType = MessageType.REQUEST.getCode();
+            requestId = ((RPCRequest) o).getRequestId();
+        } else if (o instanceof StreamFrame) {
+            StreamFrame streamFrame = (StreamFrame) o;
+            messageType = streamFrame.getType().getCode();
+            requestId = streamFrame.getRequestId();
+            // 流式调用的控制消息不需要序列化，数据只有STREAM_CREDIT的4字节个数
+            if (streamFrame.getResponse() == null) {
+                boolean credit = streamFrame.getType() == MessageType.STREAM_CREDIT;
+                writeHeader(byteBuf, messageType, serializer.getType(), ProtocolConstant.COMPRESS_NONE, requestId, credit ? 4 : 0);
+                if (credit) {
+                    byteBuf.writeInt(streamFrame.getCredit());
+                }
+                return;
+            }
+            // 元素和结束消息的数据按响应序列化
+            o = streamFrame.getResponse();
+        } else {
+            messageType = MessageType.RESPONSE.getCode();
+            requestId = ((RPCResponse) o).getRequestId();
+        }
+        // 压缩方式先按不压缩占位，长度先占位，序列化器直接写入byteBuf后再回填实际长度
+        int headerIndex = byteBuf.writerIndex();
+        writeHeader(byteBuf, messageType, serializer.getType(), ProtocolConstant.COMPRESS_NONE, requestId, 0);
+        int compressIndex = headerIndex + ProtocolConstant.COMPRESS_FIELD_OFFSET;
+        int lengthIndex = headerIndex + ProtocolConstant.LENGTH_FIELD_OFFSET;
+        int bodyIndex = headerIndex + ProtocolConstant.HEADER_LENGTH;
+        long startNanos = System.nanoTime();
+        serializer.serialize(o, byteBuf);
+        if (compressor != null && byteBuf.writerIndex() - bodyIndex >= compressThreshold) {
+            compress(compressor, byteBuf, compressIndex, bodyIndex);
+        }
+        int length = byteBuf.writerIndex() - bodyIndex;
+        byteBuf.setInt(lengthIndex, length);
+        RPCMetrics.serializer(serializer.getType()).recordEncode(System.nanoTime() - startNanos, length);
+    }
+
+    // 写出已经序列化好的响应数据，只有帧头中的请求id不同，见SharedResponse
+    public static void encodeResponse(long requestId, int serializerType, byte compressType, byte[] body, ByteBuf byteBuf) {
+        writeHeader(byteBuf, MessageType.RESPONSE.getCode(), serializerType, compressType, requestId, body.length);
+        byteBuf.writeBytes(body);
+    }
+
+    private static void writeHeader(ByteBuf byteBuf, int messageType, int serializerType, byte compressType,
+                                    long requestId, int length) {
+        // 魔数和版本
+        byteBuf.writeInt(ProtocolConstant.MAGIC_NUMBER);
+        byteBuf.writeByte(ProtocolConstant.VERSION);
+        // 消息类型
+        byteBuf.writeShort(messageType);
+        // 序列化方式
+        byteBuf.writeShort(serializerType);
+        // 压缩方式
+        byteBuf.writeByte(compressType);
+        // 请求id，响应和请求使用同一个id
+        byteBuf.writeLong(requestId);
+        // 数据长度
+        byteBuf.writeInt(length);
+    }
+
+    // 压缩到临时缓冲区，变小了才替换帧中的原始数据
+    private static void compress(Compressor compressor, ByteBuf byteBuf, int compressIndex, int bodyIndex) {
+        int bodyLength = byteBuf.writerIndex() - bodyIndex;
+        ByteBuf compressed = byteBuf.alloc().buffer(bodyLength);
+        try {
+            compressor.compress(byteBuf.slice(bodyIndex, bodyLength), compressed);
+            if (compressed.readableBytes() < bodyLength) {
+                byteBuf.writerIndex(bodyIndex);
+                byteBuf.writeBytes(compressed);
+                byteBuf.setByte(compressIndex, compressor.getType());
+            }
+        } finally {
+            compressed.release();
+        }
+    }
+
+    // 解析一个完整的帧，不支持的消息类型返回null
+    public static Object decode(ByteBuf frame) {
+        // 1. 校验魔数和版本
+        int magicNumber = frame.readInt();
+        if (magicNumber != ProtocolConstant.MAGIC_NUMBER) {
+            throw new CorruptedFrameException("无效的魔数：" + Integer.toHexString(magicNumber));
+        }
+        byte version = frame.readByte();
+        if (version != ProtocolConstant.VERSION) {
+            throw new CorruptedFrameException("不支持的协议版本：" + version);
+        }
+        // 2. 读取消息类型
+        short messageType = frame.readShort();
+        // 不认识的类型整帧跳过
+        MessageType type = MessageType.fromCode(messageType);
+        if (type == null) {
+            System.out.println("暂不支持此种数据");
+            return null;
+        }
+        // 3. 读取序列化的类型
+        short serializerType = frame.readShort();
+        // 根据类型得到相应的序列化器
+        Serializer serializer = Serializer.getSerializerByCode(serializerType);
+        if (serializer == null) throw new RuntimeException("不存在对应的序列化器");
+        // 4. 读取压缩方式
+        byte compressType = frame.readByte();
+        // 5. 读取请求id
+        long requestId = frame.readLong();
+        // 6. 读取数据的字节长度
+        int length = frame.readInt();
+        // 流式调用的控制消息没有序列化的数据
+        if (type == MessageType.STREAM_CANCEL) {
+            return StreamFrame.of(type, requestId, null, 0);
+        }
+        if (type == MessageType.STREAM_CREDIT) {
+            return StreamFrame.of(type, requestId, null, frame.readInt());
+        }
+        // 流式调用的元素和结束消息的数据是RPCResponse
+        int bodyType = type == MessageType.STREAM_DATA || type == MessageType.STREAM_END
+                ? MessageType.RESPONSE.getCode() : messageType;
+        // 7. 序列化器直接从帧中读取数据，压缩过的数据先解压
+        long startNanos = System.nanoTime();
+        Object deserialize;
+        if (compressType == ProtocolConstant.COMPRESS_NONE) {
+            deserialize = serializer.deserialize(frame, length, bodyType);
+        } else {
+            Compressor compressor = Compressor.getCompressorByCode(compressType & 0xff);
+            if (compressor == null) throw new CorruptedFrameException("不存在对应的压缩方式：" + compressType);
+            ByteBuf body = frame.alloc().buffer(Math.min(length * 4, ProtocolConstant.MAX_FRAME_LENGTH));
+            try {
+                compressor.decompress(frame, length, body, ProtocolConstant.MAX_FRAME_LENGTH);
+                deserialize = serializer.deserialize(body, body.readableBytes(), bodyType);
+            } finally {
+                body.release();
+            }
+        }
+        RPCMetrics.serializer(serializerType).recordDecode(System.nanoTime() - startNanos, length);
+        // 以帧头中的请求id为准
+        if (deserialize instanceof RPCRequest) {
+            ((RPCRequest) deserialize).setRequestId(requestId);
+        } else if (deserialize instanceof RPCResponse) {
+            ((RPCResponse) deserialize).setRequestId(requestId);
+        }
+        if (type == MessageType.STREAM_DATA || type == MessageType.STREAM_END) {
+            return StreamFrame.of(type, requestId, (RPCResponse) deserialize, 0);
+        }
+        return deserialize;
+    }
+}
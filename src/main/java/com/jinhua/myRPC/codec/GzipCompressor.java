@@ -0,0 +1,74 @@
+package com.jinhua.myRPC.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.util.zip.CRC32;
+
+/**
+ * gzip格式压缩，数据部分就是原始deflate流，前后加上gzip的头和尾
+ * 不使用GZIPOutputStream，它每次都会新建Deflater，这里复用DeflateCompressor中每个线程的实例
+ */
+public class GzipCompressor implements Compressor {
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    // gzip头：魔数、压缩方法deflate、无标志位、时间戳0、额外标志0、操作系统未知
+    private static final byte[] HEADER = {(byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static final int TRAILER_LENGTH = 8;
+
+    private final DeflateCompressor deflate = new DeflateCompressor(true);
+
+    private static final ThreadLocal<CRC32> CRC = ThreadLocal.withInitial(CRC32::new);
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        int length = in.readableBytes();
+        CRC32 crc = CRC.get();
+        crc.reset();
+        updateCrc(crc, in, in.readerIndex(), length);
+        out.writeBytes(HEADER);
+        deflate.compress(in, out);
+        // 尾部：CRC32和原始长度，都是小端序
+        out.writeIntLE((int) crc.getValue());
+        out.writeIntLE(length);
+    }
+
+    @Override
+    public void decompress(ByteBuf in, int length, ByteBuf out, int maxLength) {
+        if (length < HEADER.length + TRAILER_LENGTH) {
+            throw new CorruptedFrameException("gzip数据太短");
+        }
+        // 只接受自己写出的头，带文件名、注释等可选字段的头不支持
+        for (int i = 0; i < 4; i++) {
+            if (in.getByte(in.readerIndex() + i) != HEADER[i]) {
+                throw new CorruptedFrameException("不支持的gzip头");
+            }
+        }
+        in.skipBytes(HEADER.length);
+        int start = out.writerIndex();
+        deflate.decompress(in, length - HEADER.length - TRAILER_LENGTH, out, maxLength);
+        int crcValue = in.readIntLE();
+        int size = in.readIntLE();
+        CRC32 crc = CRC.get();
+        crc.reset();
+        updateCrc(crc, out, start, out.writerIndex() - start);
+        if (crcValue != (int) crc.getValue() || size != out.writerIndex() - start) {
+            throw new CorruptedFrameException("gzip校验失败");
+        }
+    }
+
+    private static void updateCrc(CRC32 crc, ByteBuf buf, int index, int length) {
+        if (buf.hasArray()) {
+            crc.update(buf.array(), buf.arrayOffset() + index, length);
+        } else {
+            crc.update(buf.nioBuffer(index, length));
+        }
+    }
+
+    // 2:代表gzip压缩
+    @Override
+    public int getType() {
+        return 2;
+    }
+}
@@ -2,9 +2,13 @@ package com.jinhua.myRPC.codec;
 
 import com.caucho.hessian.io.HessianInput;
 import com.caucho.hessian.io.HessianOutput;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 
 /**
  *  Hessian 是基于二进制的序列化协议
@@ -38,6 +42,30 @@ public class HessianSerializer implements Serializer{
         return null;
     }
 
+    // 通过ByteBuf的流适配器直接写入
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        try {
+            HessianOutput hessianOutput = new HessianOutput(new ByteBufOutputStream(out));
+            hessianOutput.writeObject(obj);
+            hessianOutput.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("序列化失败", e);
+        }
+    }
+
+    // 通过ByteBuf的流适配器直接读取
+    @Override
+    public Object deserialize(ByteBuf in, int length, int messageType) {
+        try (ByteBufInputStream byteBufInputStream = new ByteBufInputStream(in, length)) {
+            HessianInput hessianInput = new HessianInput(byteBufInputStream);
+            return hessianInput.readObject();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     @Override
     public int getType() {
         return 2;
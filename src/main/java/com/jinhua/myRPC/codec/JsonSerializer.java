@@ -4,6 +4,10 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.jinhua.myRPC.common.RPCRequest;
 import com.jinhua.myRPC.common.RPCResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
 
 /**
  * 序列化的时候将对象转化为了字符串，丢失了类信息，
@@ -16,6 +20,16 @@ public class JsonSerializer implements Serializer{
         return bytes;
     }
 
+    // 直接写入ByteBuf，反序列化仍需要完整的字节数组
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        try {
+            JSON.writeJSONString(new ByteBufOutputStream(out), obj);
+        } catch (IOException e) {
+            throw new RuntimeException("序列化失败", e);
+        }
+    }
+
     @Override
     public Object deserialize(byte[] bytes, int messageType) {
         Object obj = null;
@@ -46,7 +60,7 @@ public class JsonSerializer implements Serializer{
             case 1:
                 RPCResponse response = JSON.parseObject(bytes, RPCResponse.class);
                 Class<?> dataType = response.getDataType();
-                if(! dataType.isAssignableFrom(response.getData().getClass())){
+                if(dataType != null && ! dataType.isAssignableFrom(response.getData().getClass())){
                     response.setData(JSONObject.toJavaObject((JSONObject) response.getData(),dataType));
                 }
                 obj = response;
@@ -0,0 +1,122 @@
+package com.jinhua.myRPC.codec;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.esotericsoftware.kryo.serializers.CollectionSerializer;
+import com.jinhua.myRPC.common.Blog;
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+import com.jinhua.myRPC.common.User;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * Kryo 二进制序列化
+ * Kryo实例不是线程安全的，创建又比较重，所以放在池里复用；
+ * 常用类预先注册，序列化时只写一个整数id而不是完整类名
+ */
+public class KryoSerializer implements Serializer {
+    // 所有KryoSerializer共用一个Kryo池，软引用持有，内存紧张时可被回收
+    private static final KryoPool KRYO_POOL = new KryoPool.Builder(KryoSerializer::createKryo).softReferences().build();
+
+    // 每个线程复用自己的输入输出缓冲区
+    private static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(() -> new Output(4096, -1));
+    private static final ThreadLocal<Input> INPUT = ThreadLocal.withInitial(() -> new Input(4096));
+
+    // 用完后让Input不再引用调用方的字节数组
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private static Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        // 没有无参构造函数的类也能实例化
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        // 注册顺序决定类的id，客户端和服务端必须一致，新的类只能追加在后面
+        kryo.register(RPCRequest.class);
+        kryo.register(RPCResponse.class);
+        kryo.register(Object[].class);
+        kryo.register(Class.class);
+        kryo.register(Class[].class);
+        kryo.register(User.class);
+        kryo.register(Blog.class);
+        kryo.register(ArrayList.class);
+        kryo.register(HashMap.class);
+        // Arrays.asList返回的列表不能用Objenesis直接实例化，按ArrayList反序列化
+        kryo.register(Arrays.asList().getClass(), new CollectionSerializer() {
+            @Override
+            protected Collection create(Kryo kryo, Input input, Class<Collection> type) {
+                return new ArrayList();
+            }
+        });
+        return kryo;
+    }
+
+    @Override
+    public byte[] serialize(Object obj) {
+        Kryo kryo = KRYO_POOL.borrow();
+        Output output = OUTPUT.get();
+        try {
+            output.clear();
+            kryo.writeClassAndObject(output, obj);
+            return output.toBytes();
+        } finally {
+            KRYO_POOL.release(kryo);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, int messageType) {
+        Kryo kryo = KRYO_POOL.borrow();
+        Input input = INPUT.get();
+        try {
+            input.setBuffer(bytes);
+            return kryo.readClassAndObject(input);
+        } finally {
+            input.setBuffer(EMPTY_BYTES);
+            KRYO_POOL.release(kryo);
+        }
+    }
+
+    // 通过ByteBuf的流适配器直接写入，复用线程内的Output缓冲区
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        Kryo kryo = KRYO_POOL.borrow();
+        Output output = OUTPUT.get();
+        try {
+            output.setOutputStream(new ByteBufOutputStream(out));
+            kryo.writeClassAndObject(output, obj);
+            output.flush();
+        } finally {
+            output.setOutputStream(null);
+            KRYO_POOL.release(kryo);
+        }
+    }
+
+    // 通过ByteBuf的流适配器直接读取，复用线程内的Input缓冲区
+    @Override
+    public Object deserialize(ByteBuf in, int length, int messageType) {
+        Kryo kryo = KRYO_POOL.borrow();
+        Input input = INPUT.get();
+        try {
+            input.setInputStream(new ByteBufInputStream(in, length));
+            return kryo.readClassAndObject(input);
+        } finally {
+            input.setInputStream(null);
+            KRYO_POOL.release(kryo);
+        }
+    }
+
+    // 3:代表kryo序列化方式
+    @Override
+    public int getType() {
+        return 3;
+    }
+}
@@ -5,10 +5,24 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 public enum MessageType {
     REQUEST(0),
-    RESPONSE(1);
+    RESPONSE(1),
+    // 流式调用：服务端发送的一个元素，数据是data为该元素的RPCResponse
+    STREAM_DATA(2),
+    // 流式调用：服务端发送完毕或者出错，数据是表示结果的RPCResponse
+    STREAM_END(3),
+    // 流式调用：客户端不再接收，服务端停止发送，没有数据
+    STREAM_CANCEL(4),
+    // 流式调用：客户端允许服务端再发送多少个元素，数据是4字节的个数
+    STREAM_CREDIT(5);
     private int code;
 
     public int getCode() {
         return code;
     }
+
+    // 编号和声明顺序一致，不认识的编号返回null
+    public static MessageType fromCode(int code) {
+        MessageType[] types = values();
+        return code >= 0 && code < types.length ? types[code] : null;
+    }
 }
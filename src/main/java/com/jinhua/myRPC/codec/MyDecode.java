@@ -2,37 +2,39 @@ package com.jinhua.myRPC.codec;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ByteToMessageDecoder;
-
-import java.util.List;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 
 /**
  * 按照自定义编码格式进行解码
+ * 先按帧头中的数据长度切出完整的一帧，解决半包和粘包，再直接从ByteBuf反序列化，不额外拷贝字节数组
  */
-public class MyDecode extends ByteToMessageDecoder {
+public class MyDecode extends LengthFieldBasedFrameDecoder {
+
+    public MyDecode() {
+        this(ProtocolConstant.MAX_FRAME_LENGTH);
+    }
+
+    public MyDecode(int maxFrameLength) {
+        super(maxFrameLength, ProtocolConstant.LENGTH_FIELD_OFFSET, 4, 0, 0);
+    }
 
     @Override
-    protected void decode(ChannelHandlerContext channelHandlerContext, ByteBuf in, List<Object> out) throws Exception {
-        // 1. 读取消息类型
-        short messageType = in.readShort();
-        // 现在还只支持request与response请求
-        if(messageType != MessageType.REQUEST.getCode() &&
-                messageType != MessageType.RESPONSE.getCode()){
-            System.out.println("暂不支持此种数据");
-            return;
+    protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        // 不足一帧时返回null，等待后续数据
+        ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+        if (frame == null) {
+            return null;
         }
-        // 2. 读取序列化的类型
-        short serializerType = in.readShort();
-        // 根据类型得到相应的序列化器
-        Serializer serializer = Serializer.getSerializerByCode(serializerType);
-        if(serializer == null)throw new RuntimeException("不存在对应的序列化器");
-        // 3. 读取数据序列化后的字节长度
-        int length = in.readInt();
-        // 4. 读取序列化数组
-        byte[] bytes = new byte[length];
-        in.readBytes(bytes);
-        // 用对应的序列化器解码字节数组
-        Object deserialize = serializer.deserialize(bytes, messageType);
-        out.add(deserialize);
+        try {
+            return FrameCodec.decode(frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    // 帧只在decode内部使用，直接切片，不拷贝
+    @Override
+    protected ByteBuf extractFrame(ChannelHandlerContext ctx, ByteBuf buffer, int index, int length) {
+        return buffer.retainedSlice(index, length);
     }
 }
@@ -1,7 +1,5 @@
 package com.jinhua.myRPC.codec;
 
-import com.jinhua.myRPC.common.RPCRequest;
-import com.jinhua.myRPC.common.RPCResponse;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
@@ -9,26 +7,29 @@ import lombok.AllArgsConstructor;
 
 /**
  * 按照自定义的消息格式写入
- * 需要一个序列化器，将对象序列化为字节数组
+ * 需要一个序列化器，将对象直接序列化到输出的ByteBuf中；可选一个压缩器，数据超过阈值时压缩
  */
 @AllArgsConstructor
 public class MyEncode extends MessageToByteEncoder {
     private Serializer serializer;
+
+    // 为null时不压缩
+    private Compressor compressor;
+
+    // 序列化后的数据达到多少字节才压缩
+    private int compressThreshold;
+
+    public MyEncode(Serializer serializer) {
+        this(serializer, null, Integer.MAX_VALUE);
+    }
+
     @Override
     protected void encode(ChannelHandlerContext channelHandlerContext, Object o, ByteBuf byteBuf) throws Exception {
-        // 写入消息类型
-        if (o instanceof RPCRequest) {
-            byteBuf.writeShort(MessageType.REQUEST.getCode());
-        } else if (o instanceof RPCResponse) {
-            byteBuf.writeShort(MessageType.RESPONSE.getCode());
+        // 多个请求共用的响应，数据部分只序列化一次
+        if (o instanceof SharedResponse.Frame) {
+            ((SharedResponse.Frame) o).encode(serializer, compressor, compressThreshold, byteBuf);
+            return;
         }
-        // 写入序列化方式
-        byteBuf.writeShort(serializer.getType());
-        byte[] serialize = serializer.serialize(o);
-        //写入长度
-        byteBuf.writeInt(serialize.length);
-        //写入序列化字节数组
-        byteBuf.writeBytes(serialize);
-
+        FrameCodec.encode(o, serializer, compressor, compressThreshold, byteBuf);
     }
 }
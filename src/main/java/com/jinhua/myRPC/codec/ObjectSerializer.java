@@ -1,5 +1,9 @@
 package com.jinhua.myRPC.codec;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
 import java.io.*;
 
 public class ObjectSerializer implements Serializer{
@@ -39,6 +43,28 @@ public class ObjectSerializer implements Serializer{
         return obj;
     }
 
+    // 通过ByteBuf的流适配器直接写入
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new ByteBufOutputStream(out))) {
+            oos.writeObject(obj);
+        } catch (IOException e) {
+            throw new RuntimeException("序列化失败", e);
+        }
+    }
+
+    // 通过ByteBuf的流适配器直接读取
+    @Override
+    public Object deserialize(ByteBuf in, int length, int messageType) {
+        Object obj = null;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteBufInputStream(in, length))) {
+            obj = ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+        return obj;
+    }
+
     // 0 代表java原生的序列化器
     @Override
     public int getType() {
@@ -0,0 +1,29 @@
+package com.jinhua.myRPC.codec;
+
+/**
+ * 自定义协议的帧格式
+ * | 魔数(4) | 版本(1) | 消息类型(2) | 序列化方式(2) | 压缩方式(1) | 请求id(8) | 数据长度(4) | 数据(数据长度) |
+ * 压缩方式为0时数据未压缩，否则数据是压缩后的字节，数据长度也是压缩后的长度
+ */
+public class ProtocolConstant {
+    // 魔数 "mrpc"，用来快速识别不是本协议的连接
+    public static final int MAGIC_NUMBER = 0x6D727063;
+
+    // 协议版本，帧格式变化时递增
+    public static final byte VERSION = 2;
+
+    // 帧头长度
+    public static final int HEADER_LENGTH = 22;
+
+    // 压缩方式字段在帧头中的偏移量
+    public static final int COMPRESS_FIELD_OFFSET = 9;
+
+    // 数据长度字段在帧头中的偏移量
+    public static final int LENGTH_FIELD_OFFSET = 18;
+
+    // 不压缩
+    public static final byte COMPRESS_NONE = 0;
+
+    // 单帧最大长度，也是解压后数据的最大长度，防止恶意或错误的长度字段耗尽内存
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+}
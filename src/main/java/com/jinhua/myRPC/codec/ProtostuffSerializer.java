@@ -0,0 +1,153 @@
+package com.jinhua.myRPC.codec;
+
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Schema;
+import io.protostuff.runtime.RuntimeSchema;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Protostuff 基于schema的二进制序列化
+ * 每个类的schema只生成一次并缓存，每个线程复用自己的LinkedBuffer
+ * RPCRequest中Object[] params与Class<?>[] paramsTypes这类字段由运行时schema写入实际类型，可以正确还原，
+ * 但Object[]中的null元素会被跳过导致参数错位，所以请求的参数逐个包装在Arg中传输
+ */
+public class ProtostuffSerializer implements Serializer {
+    // 类 -> schema，RuntimeSchema生成需要反射，所以缓存起来
+    private static final Map<Class<?>, Schema<?>> SCHEMA_CACHE = new ConcurrentHashMap<>();
+
+    // 每个线程复用一个序列化缓冲区
+    private static final ThreadLocal<LinkedBuffer> BUFFER =
+            ThreadLocal.withInitial(() -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+
+    @SuppressWarnings("unchecked")
+    private static <T> Schema<T> getSchema(Class<T> clazz) {
+        return (Schema<T>) SCHEMA_CACHE.computeIfAbsent(clazz, RuntimeSchema::createFrom);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] serialize(Object obj) {
+        obj = wrap(obj);
+        Schema<Object> schema = getSchema((Class<Object>) obj.getClass());
+        LinkedBuffer buffer = BUFFER.get();
+        try {
+            return ProtostuffIOUtil.toByteArray(obj, schema, buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, int messageType) {
+        Schema<Object> schema = getSchemaByMessageType(messageType);
+        Object obj = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(bytes, obj, schema);
+        return unwrap(obj);
+    }
+
+    // 通过ByteBuf的流适配器直接写入
+    @Override
+    @SuppressWarnings("unchecked")
+    public void serialize(Object obj, ByteBuf out) {
+        obj = wrap(obj);
+        Schema<Object> schema = getSchema((Class<Object>) obj.getClass());
+        LinkedBuffer buffer = BUFFER.get();
+        try {
+            ProtostuffIOUtil.writeTo(new ByteBufOutputStream(out), obj, schema, buffer);
+        } catch (IOException e) {
+            throw new RuntimeException("序列化失败", e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    // 通过ByteBuf的流适配器直接读取
+    @Override
+    public Object deserialize(ByteBuf in, int length, int messageType) {
+        Schema<Object> schema = getSchemaByMessageType(messageType);
+        Object obj = schema.newMessage();
+        try (ByteBufInputStream inputStream = new ByteBufInputStream(in, length)) {
+            ProtostuffIOUtil.mergeFrom(inputStream, obj, schema);
+        } catch (IOException e) {
+            // 返回null会让这一帧被静默丢弃，调用方只能等到超时
+            throw new RuntimeException("反序列化失败", e);
+        }
+        return unwrap(obj);
+    }
+
+    // 数据里没有根对象的类型，需要根据消息类型决定反序列化成request还是response
+    @SuppressWarnings("unchecked")
+    private Schema<Object> getSchemaByMessageType(int messageType) {
+        if (messageType == MessageType.REQUEST.getCode()) {
+            return (Schema<Object>) (Schema<?>) getSchema(RequestEnvelope.class);
+        } else if (messageType == MessageType.RESPONSE.getCode()) {
+            return (Schema<Object>) (Schema<?>) getSchema(RPCResponse.class);
+        }
+        System.out.println("暂时不支持此种消息");
+        throw new RuntimeException();
+    }
+
+    // 请求的参数单独拿出来逐个包装，请求本身浅拷贝一份，不修改调用方的对象
+    private static Object wrap(Object obj) {
+        if (!(obj instanceof RPCRequest)) {
+            return obj;
+        }
+        RPCRequest request = (RPCRequest) obj;
+        Arg[] args = null;
+        if (request.getParams() != null) {
+            args = new Arg[request.getParams().length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = new Arg(request.getParams()[i]);
+            }
+        }
+        return new RequestEnvelope(request.toBuilder().params(null).build(), args);
+    }
+
+    private static Object unwrap(Object obj) {
+        if (!(obj instanceof RequestEnvelope)) {
+            return obj;
+        }
+        RequestEnvelope envelope = (RequestEnvelope) obj;
+        RPCRequest request = envelope.request;
+        if (envelope.params != null) {
+            Object[] params = new Object[envelope.params.length];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = envelope.params[i].value;
+            }
+            request.setParams(params);
+        }
+        return request;
+    }
+
+    // 请求在protostuff中的实际传输格式
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class RequestEnvelope {
+        private RPCRequest request;
+        private Arg[] params;
+    }
+
+    // 单个参数，值为null时Arg本身仍然存在，保证参数位置不变
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Arg {
+        private Object value;
+    }
+
+    // 4:代表protostuff序列化方式
+    @Override
+    public int getType() {
+        return 4;
+    }
+}
@@ -1,5 +1,7 @@
 package com.jinhua.myRPC.codec;
 
+import io.netty.buffer.ByteBuf;
+
 public interface Serializer {
     // 把对象序列化成字节数组
     byte[] serialize(Object obj);
@@ -8,20 +10,24 @@ public interface Serializer {
     // 其他方式反序列化的时候需要把message转化为相应的对象
     Object deserialize(byte[] bytes, int messageType);
 
-    // 0:java自带序列化方式，1：json序列化方式
+    // 把对象直接序列化到ByteBuf中，支持流式写入的序列化器应覆盖此方法，避免中间字节数组
+    default void serialize(Object obj, ByteBuf out) {
+        out.writeBytes(serialize(obj));
+    }
+
+    // 从ByteBuf当前位置读取length个字节反序列化，支持流式读取的序列化器应覆盖此方法
+    default Object deserialize(ByteBuf in, int length, int messageType) {
+        byte[] bytes = new byte[length];
+        in.readBytes(bytes);
+        return deserialize(bytes, messageType);
+    }
+
+    // 序列化器全局共享，实现必须是线程安全的
+    // 0:java自带序列化方式，1：json序列化方式，2：hessian序列化方式，3：kryo序列化方式，4：protostuff序列化方式
     int getType();
 
-    // 还有其它的序列化方式实现这个接口
+    // 还有其它的序列化方式实现这个接口，并在SerializerRegistry中注册
     static Serializer getSerializerByCode(int code) {
-        switch (code) {
-            case  0:
-                return new ObjectSerializer();
-            case 1:
-                return new JsonSerializer();
-            case 2:
-                return new HessianSerializer();
-            default:
-                return null;
-        }
+        return SerializerRegistry.getSerializer(code);
     }
 }
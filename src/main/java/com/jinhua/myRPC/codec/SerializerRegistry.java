@@ -0,0 +1,52 @@
+package com.jinhua.myRPC.codec;
+
+import java.util.ServiceLoader;
+
+/**
+ * 序列化器注册表，按序列化方式的编号存放在数组中，解码时直接按下标取出，不再每帧new一个序列化器
+ * 内置的序列化器在这里注册；第三方序列化器可以调用register，
+ * 或者在 META-INF/services/com.jinhua.myRPC.codec.Serializer 中声明实现类，由ServiceLoader自动加载
+ */
+public class SerializerRegistry {
+    // 编号上限，帧头中序列化方式占2个字节，这里只用到很小的一段
+    public static final int MAX_CODE = 256;
+
+    // 注册时整体替换数组，读取时不加锁
+    private static volatile Serializer[] serializers = new Serializer[MAX_CODE];
+
+    static {
+        register(new ObjectSerializer());
+        register(new JsonSerializer());
+        register(new HessianSerializer());
+        register(new KryoSerializer());
+        register(new ProtostuffSerializer());
+        // SPI 扩展的序列化器
+        for (Serializer serializer : ServiceLoader.load(Serializer.class)) {
+            register(serializer);
+        }
+    }
+
+    // 注册序列化器，编号不能重复，序列化器会被所有连接共享，必须是线程安全的
+    public static synchronized void register(Serializer serializer) {
+        int code = serializer.getType();
+        if (code < 0 || code >= MAX_CODE) {
+            throw new IllegalArgumentException("序列化方式编号超出范围：" + code);
+        }
+        Serializer[] current = serializers;
+        if (current[code] != null) {
+            throw new IllegalStateException("序列化方式编号" + code + "已被" + current[code].getClass().getName() + "占用");
+        }
+        Serializer[] updated = current.clone();
+        updated[code] = serializer;
+        serializers = updated;
+    }
+
+    // 根据编号取出序列化器，不存在时返回null
+    public static Serializer getSerializer(int code) {
+        Serializer[] current = serializers;
+        if (code < 0 || code >= current.length) {
+            return null;
+        }
+        return current[code];
+    }
+}
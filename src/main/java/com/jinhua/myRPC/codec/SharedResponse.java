@@ -0,0 +1,61 @@
+package com.jinhua.myRPC.codec;
+
+import com.jinhua.myRPC.common.RPCResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * 多个请求共用的同一个响应，数据部分只序列化一次
+ * 每个请求通过forRequest得到自己的Frame写出，MyEncode只为它单独写帧头
+ * 帧头中的请求id优先于数据中的，所以数据部分可以原样复用
+ */
+public class SharedResponse {
+    private final RPCResponse response;
+
+    // 序列化（和压缩）后的数据，第一次写出时生成
+    private byte[] body;
+    private int serializerType;
+    private byte compressType;
+
+    public SharedResponse(RPCResponse response) {
+        this.response = response;
+    }
+
+    public RPCResponse getResponse() {
+        return response;
+    }
+
+    public Frame forRequest(long requestId) {
+        return new Frame(this, requestId);
+    }
+
+    // 同一个服务端的编码器使用相同的序列化方式，只有序列化方式不同时才重新序列化
+    private synchronized void encode(Serializer serializer, Compressor compressor, int compressThreshold, ByteBuf out, long requestId) {
+        if (body == null || serializerType != serializer.getType()) {
+            ByteBuf frame = Unpooled.buffer();
+            FrameCodec.encode(response, serializer, compressor, compressThreshold, frame);
+            serializerType = serializer.getType();
+            compressType = frame.getByte(ProtocolConstant.COMPRESS_FIELD_OFFSET);
+            body = new byte[frame.readableBytes() - ProtocolConstant.HEADER_LENGTH];
+            frame.getBytes(ProtocolConstant.HEADER_LENGTH, body);
+        }
+        FrameCodec.encodeResponse(requestId, serializerType, compressType, body, out);
+    }
+
+    /**
+     * 某一个请求的响应
+     */
+    public static class Frame {
+        private final SharedResponse shared;
+        private final long requestId;
+
+        private Frame(SharedResponse shared, long requestId) {
+            this.shared = shared;
+            this.requestId = requestId;
+        }
+
+        void encode(Serializer serializer, Compressor compressor, int compressThreshold, ByteBuf out) {
+            shared.encode(serializer, compressor, compressThreshold, out, requestId);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.jinhua.myRPC.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.compression.Snappy;
+
+/**
+ * snappy压缩，LZ77类的快速算法，压缩率不如deflate，但速度快很多，适合对延迟敏感的调用
+ * 使用netty自带的纯java实现，不需要额外依赖和本地库
+ * netty的Snappy.encode内部用short保存偏移，一次最多只能压缩32KB，所以数据按块压缩：
+ * | 块长度(4) | snappy块 | 块长度(4) | snappy块 | ...
+ */
+public class SnappyCompressor implements Compressor {
+    // Snappy对象内部有状态，每个线程复用一个
+    private static final ThreadLocal<Snappy> SNAPPY = ThreadLocal.withInitial(Snappy::new);
+
+    // 每块原始数据的最大长度
+    private static final int BLOCK_SIZE = 32 * 1024 - 1;
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        Snappy snappy = SNAPPY.get();
+        while (in.isReadable()) {
+            int blockLength = Math.min(in.readableBytes(), BLOCK_SIZE);
+            int lengthIndex = out.writerIndex();
+            out.writeInt(0);
+            snappy.reset();
+            snappy.encode(in.readSlice(blockLength), out, blockLength);
+            out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+        }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, int length, ByteBuf out, int maxLength) {
+        ByteBuf data = in.readSlice(length);
+        Snappy snappy = SNAPPY.get();
+        int total = 0;
+        while (data.isReadable()) {
+            int blockLength = data.readInt();
+            if (blockLength <= 0 || blockLength > data.readableBytes()) {
+                throw new CorruptedFrameException("snappy块长度错误：" + blockLength);
+            }
+            // 块开头是变长编码的原始长度，先检查再解压
+            total += readPreamble(data);
+            if (total < 0 || total > maxLength) {
+                throw new TooLongFrameException("解压后的数据超出限制：" + maxLength);
+            }
+            snappy.reset();
+            snappy.decode(data.readSlice(blockLength), out);
+        }
+    }
+
+    // 读取开头的原始长度，不移动读指针
+    private static int readPreamble(ByteBuf in) {
+        int result = 0;
+        int index = in.readerIndex();
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.getByte(index++);
+            result |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    // 3:代表snappy压缩
+    @Override
+    public int getType() {
+        return 3;
+    }
+}
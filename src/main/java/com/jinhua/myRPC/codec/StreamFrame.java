@@ -0,0 +1,61 @@
+package com.jinhua.myRPC.codec;
+
+import com.jinhua.myRPC.common.RPCResponse;
+
+/**
+ * 流式调用中请求和响应之外的消息，requestId是发起流式调用的请求的id
+ * 服务端发送STREAM_DATA和STREAM_END，携带RPCResponse；客户端发送STREAM_CREDIT和STREAM_CANCEL，只有控制信息
+ */
+public class StreamFrame {
+    private final MessageType type;
+    private final long requestId;
+
+    // STREAM_DATA和STREAM_END的内容
+    private final RPCResponse response;
+
+    // STREAM_CREDIT增加的元素个数
+    private final int credit;
+
+    private StreamFrame(MessageType type, long requestId, RPCResponse response, int credit) {
+        this.type = type;
+        this.requestId = requestId;
+        this.response = response;
+        this.credit = credit;
+    }
+
+    public static StreamFrame data(long requestId, Object element) {
+        return new StreamFrame(MessageType.STREAM_DATA, requestId, RPCResponse.success(element), 0);
+    }
+
+    public static StreamFrame end(long requestId, RPCResponse result) {
+        return new StreamFrame(MessageType.STREAM_END, requestId, result, 0);
+    }
+
+    public static StreamFrame cancel(long requestId) {
+        return new StreamFrame(MessageType.STREAM_CANCEL, requestId, null, 0);
+    }
+
+    public static StreamFrame credit(long requestId, int credit) {
+        return new StreamFrame(MessageType.STREAM_CREDIT, requestId, null, credit);
+    }
+
+    static StreamFrame of(MessageType type, long requestId, RPCResponse response, int credit) {
+        return new StreamFrame(type, requestId, response, credit);
+    }
+
+    public MessageType getType() {
+        return type;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public RPCResponse getResponse() {
+        return response;
+    }
+
+    public int getCredit() {
+        return credit;
+    }
+}
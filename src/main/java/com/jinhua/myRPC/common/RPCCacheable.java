@@ -0,0 +1,21 @@
+package com.jinhua.myRPC.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注幂等的只读方法，客户端在有效期内直接返回缓存的结果，不再发起调用
+ * 参数值相同（按equals比较）的调用共用一个结果，只缓存成功的响应
+ * 缓存的结果会返回给多个调用方，调用方不应修改返回的对象
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RPCCacheable {
+    // 有效期（毫秒）
+    long ttlMillis() default 1000;
+
+    // 最多缓存多少个不同参数的结果，超过时淘汰最久没有访问的
+    int maxSize() default 1024;
+}
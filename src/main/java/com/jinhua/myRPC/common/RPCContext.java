@@ -0,0 +1,52 @@
+package com.jinhua.myRPC.common;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 当前线程上正在处理的请求的截止时间
+ * 服务端执行服务方法前设置，服务方法里再发起的RPC调用会用剩余时间作为超时时间，截止时间就这样一路传递下去
+ */
+public class RPCContext {
+    // 截止时间（System.nanoTime），没有截止时间时为null
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RPCContext() {
+    }
+
+    public static void setDeadline(Long deadlineNanos) {
+        if (deadlineNanos == null) {
+            DEADLINE.remove();
+        } else {
+            DEADLINE.set(deadlineNanos);
+        }
+    }
+
+    public static Long getDeadline() {
+        return DEADLINE.get();
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    // 根据请求携带的超时时间计算本地的截止时间，请求没有超时时间时返回null
+    public static Long deadlineOf(RPCRequest request) {
+        if (request.getTimeout() <= 0) {
+            return null;
+        }
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(request.getTimeout());
+    }
+
+    public static boolean isExpired(Long deadlineNanos) {
+        return deadlineNanos != null && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    // 当前线程剩余的时间（毫秒），没有截止时间时返回-1，已经过期时返回0
+    public static long remainingMillis() {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return -1;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+}
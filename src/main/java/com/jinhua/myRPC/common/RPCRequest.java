@@ -8,10 +8,13 @@ import lombok.NoArgsConstructor;
 import java.io.Serializable;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 public class RPCRequest implements Serializable {
+    // 请求id，客户端据此把响应对应回发起的请求，同一连接上可以同时有多个请求
+    private long requestId;
+
     // 服务接口名
     private String interfaceName;
 
@@ -24,5 +27,6 @@ public class RPCRequest implements Serializable {
     // 参数类型
     private Class<?>[] paramsTypes;
 
-
+    // 调用方还愿意等待的时间（毫秒），0表示不限制；传剩余时间而不是绝对时间，两端的时钟不需要一致
+    private long timeout;
 }
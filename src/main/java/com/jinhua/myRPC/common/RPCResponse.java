@@ -15,6 +15,9 @@ import java.io.Serializable;
 @NoArgsConstructor
 @Builder
 public class RPCResponse implements Serializable {
+    // 对应请求的id
+    private long requestId;
+
     // 响应状态码
     private int code;
 
@@ -28,12 +31,21 @@ public class RPCResponse implements Serializable {
     private Object data;
 
     public static RPCResponse success(Object data) {
-        return RPCResponse.builder().code(200).data(data).dataType(data.getClass()).build();
+        return RPCResponse.builder().code(200).data(data).dataType(data == null ? null : data.getClass()).build();
     }
 
     public static RPCResponse fail() {
         return RPCResponse.builder().code(500).message("服务器发生错误").build();
     }
 
+    // 服务端业务线程池已满，请求没有执行
+    public static RPCResponse reject() {
+        return RPCResponse.builder().code(503).message("服务器繁忙，请求被拒绝").build();
+    }
+
+    // 请求超过了调用方的超时时间，客户端不再等待，服务端也不再执行
+    public static RPCResponse timeout() {
+        return RPCResponse.builder().code(504).message("请求超时").build();
+    }
 
 }
@@ -0,0 +1,16 @@
+package com.jinhua.myRPC.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在服务接口的方法上，服务端合并参数相同的并发请求：
+ * 同一时刻只执行一次，正在执行时到达的相同请求等待这次执行的结果，响应数据只序列化一次
+ * 只适用于结果只取决于参数的只读方法
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RPCSingleFlight {
+}
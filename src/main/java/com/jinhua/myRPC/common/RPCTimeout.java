@@ -0,0 +1,16 @@
+package com.jinhua.myRPC.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 服务接口或方法的调用超时时间（毫秒），方法上的优先于接口上的
+ * 都没有标注时使用客户端配置的默认超时时间
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RPCTimeout {
+    long value();
+}
@@ -0,0 +1,121 @@
+package com.jinhua.myRPC.common;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 客户端和服务端共用的网络传输配置
+ * Linux上能加载epoll本地库时使用epoll，否则使用NIO
+ */
+@Data
+@Builder
+public class TransportConfig {
+    // 是否优先使用epoll
+    @Builder.Default
+    private boolean preferNative = true;
+
+    // 服务端接收连接的线程数
+    @Builder.Default
+    private int bossThreads = 1;
+
+    // 处理读写的IO线程数，0表示使用netty的默认值：cpu核心数的2倍
+    @Builder.Default
+    private int workerThreads = 0;
+
+    // 关闭Nagle算法，小包立即发送，降低延迟
+    @Builder.Default
+    private boolean tcpNoDelay = true;
+
+    @Builder.Default
+    private boolean keepAlive = true;
+
+    // 服务端等待accept的连接队列长度
+    @Builder.Default
+    private int backlog = 1024;
+
+    // socket发送、接收缓冲区大小（字节），0表示使用操作系统默认值
+    @Builder.Default
+    private int sendBufferSize = 0;
+
+    @Builder.Default
+    private int receiveBufferSize = 0;
+
+    // 使用池化的直接内存分配ByteBuf，减少分配和拷贝
+    @Builder.Default
+    private boolean pooledDirectAllocator = true;
+
+    // 客户端建立连接的超时时间
+    @Builder.Default
+    private int connectTimeoutMillis = 3000;
+
+    public static TransportConfig defaultConfig() {
+        return TransportConfig.builder().build();
+    }
+
+    public boolean useEpoll() {
+        return preferNative && Epoll.isAvailable();
+    }
+
+    public EventLoopGroup newEventLoopGroup(int threads, String name) {
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory(name);
+        return useEpoll() ? new EpollEventLoopGroup(threads, threadFactory) : new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    public Class<? extends ServerChannel> serverChannelClass() {
+        return useEpoll() ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public Class<? extends Channel> channelClass() {
+        return useEpoll() ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    public ByteBufAllocator allocator() {
+        return pooledDirectAllocator ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT;
+    }
+
+    // 服务端：监听socket和每个连接的选项
+    public void apply(ServerBootstrap bootstrap) {
+        bootstrap.option(ChannelOption.SO_BACKLOG, backlog)
+                .option(ChannelOption.ALLOCATOR, allocator())
+                .childOption(ChannelOption.TCP_NODELAY, tcpNoDelay)
+                .childOption(ChannelOption.SO_KEEPALIVE, keepAlive)
+                .childOption(ChannelOption.ALLOCATOR, allocator());
+        if (sendBufferSize > 0) {
+            bootstrap.childOption(ChannelOption.SO_SNDBUF, sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            bootstrap.childOption(ChannelOption.SO_RCVBUF, receiveBufferSize);
+        }
+    }
+
+    // 客户端：连接的选项
+    public void apply(Bootstrap bootstrap) {
+        bootstrap.option(ChannelOption.TCP_NODELAY, tcpNoDelay)
+                .option(ChannelOption.SO_KEEPALIVE, keepAlive)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .option(ChannelOption.ALLOCATOR, allocator());
+        if (sendBufferSize > 0) {
+            bootstrap.option(ChannelOption.SO_SNDBUF, sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, receiveBufferSize);
+        }
+    }
+}
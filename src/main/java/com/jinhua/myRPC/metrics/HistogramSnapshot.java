@@ -0,0 +1,75 @@
+package com.jinhua.myRPC.metrics;
+
+/**
+ * 某一时刻直方图的拷贝，用来计算分位数，创建后不再修改
+ */
+public class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+
+    HistogramSnapshot(long[] counts, long sum) {
+        this.counts = counts;
+        this.sum = sum;
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        this.count = total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // 平均值（纳秒）
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    // 分位数（纳秒），percentile取0~100，返回所在桶的中间值
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return LatencyHistogram.lowerBoundOf(i) + LatencyHistogram.widthOf(i) / 2;
+            }
+        }
+        return getMax();
+    }
+
+    // 最大值（纳秒），取最后一个非空桶的上界
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return LatencyHistogram.lowerBoundOf(i) + LatencyHistogram.widthOf(i) - 1;
+            }
+        }
+        return 0;
+    }
+
+    // 相对于之前一次快照新增的样本，用于按时间段输出
+    public HistogramSnapshot since(HistogramSnapshot previous) {
+        if (previous == null) {
+            return this;
+        }
+        long[] delta = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            delta[i] = Math.max(counts[i] - previous.counts[i], 0);
+        }
+        return new HistogramSnapshot(delta, Math.max(sum - previous.sum, 0));
+    }
+
+    // 以微秒输出
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+                count, getMean() / 1000, getPercentile(50) / 1000.0, getPercentile(90) / 1000.0,
+                getPercentile(99) / 1000.0, getPercentile(99.9) / 1000.0, getMax() / 1000.0);
+    }
+}
@@ -0,0 +1,82 @@
+package com.jinhua.myRPC.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的耗时直方图，思路和HdrHistogram相同：按2的幂分段，每段再等分成16个桶，相对误差不超过1/16
+ * 每个桶是一个LongAdder，多个线程同时记录时分散到不同的cell上，不互相竞争；桶在第一次用到时才创建
+ * 记录的单位是纳秒，超过约68秒的值记在最后一个桶里
+ */
+public class LatencyHistogram {
+    // 每段的桶数为2^SUB_BUCKET_BITS
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // 能区分的最大值为2^MAX_EXPONENT纳秒
+    private static final int MAX_EXPONENT = 36;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(BUCKETS);
+
+    // 所有样本的和，用来算平均值
+    private final LongAdder sum = new LongAdder();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int index = indexOf(nanos);
+        LongAdder bucket = buckets.get(index);
+        if (bucket == null) {
+            buckets.compareAndSet(index, null, new LongAdder());
+            bucket = buckets.get(index);
+        }
+        bucket.increment();
+        sum.add(nanos);
+    }
+
+    // 当前的计数拷贝一份；记录和拷贝同时进行时各个桶之间不保证严格一致，统计上可以忽略
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            LongAdder bucket = buckets.get(i);
+            if (bucket != null) {
+                counts[i] = bucket.sum();
+            }
+        }
+        return new HistogramSnapshot(counts, sum.sum());
+    }
+
+    // 小于16的值一个值一个桶；更大的值按最高位所在的段，再取紧跟其后的4位作为段内的桶
+    static int indexOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // 桶的下界
+    static long lowerBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    // 桶的宽度
+    static long widthOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return 1;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return 1L << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,70 @@
+package com.jinhua.myRPC.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个服务方法在客户端或服务端的统计，所有计数都是LongAdder，记录时不加锁
+ * 客户端：排队时间是从发起调用到拿到连接写出请求，耗时是完整的一次往返
+ * 服务端：排队时间是从收到请求到业务线程开始执行，耗时是服务方法的执行时间
+ * 客户端的结果缓存命中时不发起调用，不计入调用次数，只计入缓存命中数
+ * 服务端合并到其它请求执行结果上的请求同样计入调用次数，耗时是从收到请求到拿到共用的结果，拿到结果时另外计入合并数
+ */
+public class MethodMetrics {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    // 正在处理的请求数
+    private final LongAdder inFlight = new LongAdder();
+
+    // 客户端结果缓存的命中和未命中次数
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    // 服务端合并到正在执行的相同请求上的次数
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LatencyHistogram queueTime = new LatencyHistogram();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // 开始一次调用
+    public void begin() {
+        calls.increment();
+        inFlight.increment();
+    }
+
+    public void recordQueue(long nanos) {
+        queueTime.record(nanos);
+    }
+
+    // 调用结束，记录耗时；失败的调用同样计入耗时
+    public void end(long startNanos, boolean success) {
+        inFlight.decrement();
+        latency.record(System.nanoTime() - startNanos);
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    // 调用没有执行就结束了，例如被拒绝或者已经超时，只计入错误
+    public void fail() {
+        inFlight.decrement();
+        errors.increment();
+    }
+
+    public void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    public void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    public void recordCoalesced() {
+        coalesced.increment();
+    }
+
+    MetricsSnapshot.MethodSnapshot snapshot(String side, String interfaceName, String methodName) {
+        return new MetricsSnapshot.MethodSnapshot(side, interfaceName, methodName, calls.sum(), errors.sum(),
+                inFlight.sum(), cacheHits.sum(), cacheMisses.sum(), coalesced.sum(), queueTime.snapshot(), latency.snapshot());
+    }
+}
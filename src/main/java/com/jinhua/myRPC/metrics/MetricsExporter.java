@@ -0,0 +1,56 @@
+package com.jinhua.myRPC.metrics;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 定时输出统计，每次输出的是这一段时间内的增量
+ * 例如：MetricsExporter exporter = MetricsExporter.start(10, TimeUnit.SECONDS); 不再需要时调用close()
+ */
+public class MetricsExporter implements AutoCloseable {
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("rpc-metrics", true));
+
+    private final Consumer<MetricsSnapshot> consumer;
+
+    // 上一次输出时的累计值
+    private MetricsSnapshot last;
+
+    private MetricsExporter(Consumer<MetricsSnapshot> consumer) {
+        this.consumer = consumer;
+    }
+
+    // 输出到控制台
+    public static MetricsExporter start(long period, TimeUnit unit) {
+        return start(period, unit, System.out::println);
+    }
+
+    // 交给consumer处理，例如写日志或者推送到监控系统
+    public static MetricsExporter start(long period, TimeUnit unit, Consumer<MetricsSnapshot> consumer) {
+        MetricsExporter exporter = new MetricsExporter(consumer);
+        exporter.last = RPCMetrics.snapshot();
+        exporter.executor.scheduleAtFixedRate(exporter::export, period, period, unit);
+        return exporter;
+    }
+
+    private void export() {
+        try {
+            MetricsSnapshot current = RPCMetrics.snapshot();
+            MetricsSnapshot interval = current.since(last);
+            last = current;
+            consumer.accept(interval);
+        } catch (Exception e) {
+            // 输出失败不影响下一次
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,135 @@
+package com.jinhua.myRPC.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 某一时刻所有统计的拷贝，由RPCMetrics.snapshot()得到
+ */
+@Getter
+@AllArgsConstructor
+public class MetricsSnapshot {
+    // 拍快照的时间
+    private final long timestamp;
+
+    private final List<MethodSnapshot> methods;
+
+    private final List<SerializerSnapshot> serializers;
+
+    // 客户端收到的已经超时或者找不到对应请求的响应数
+    private final long lateResponses;
+
+    // 相对于之前一次快照的增量，正在处理的请求数仍然是当前值
+    public MetricsSnapshot since(MetricsSnapshot previous) {
+        if (previous == null) {
+            return this;
+        }
+        Map<String, MethodSnapshot> previousMethods = new HashMap<>();
+        for (MethodSnapshot method : previous.methods) {
+            previousMethods.put(method.key(), method);
+        }
+        List<MethodSnapshot> methodDelta = new ArrayList<>(methods.size());
+        for (MethodSnapshot method : methods) {
+            methodDelta.add(method.since(previousMethods.get(method.key())));
+        }
+        Map<Integer, SerializerSnapshot> previousSerializers = new HashMap<>();
+        for (SerializerSnapshot serializer : previous.serializers) {
+            previousSerializers.put(serializer.serializerType, serializer);
+        }
+        List<SerializerSnapshot> serializerDelta = new ArrayList<>(serializers.size());
+        for (SerializerSnapshot serializer : serializers) {
+            serializerDelta.add(serializer.since(previousSerializers.get(serializer.serializerType)));
+        }
+        return new MetricsSnapshot(timestamp, methodDelta, serializerDelta,
+                Math.max(lateResponses - previous.lateResponses, 0));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RPC统计：");
+        for (MethodSnapshot method : methods) {
+            builder.append('\n').append(method);
+        }
+        for (SerializerSnapshot serializer : serializers) {
+            builder.append('\n').append(serializer);
+        }
+        if (lateResponses > 0) {
+            builder.append("\n迟到的响应 ").append(lateResponses);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 一个方法在客户端或服务端的统计
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class MethodSnapshot {
+        // RPCMetrics.CLIENT或RPCMetrics.SERVER
+        private final String side;
+        private final String interfaceName;
+        private final String methodName;
+        private final long calls;
+        private final long errors;
+        private final long inFlight;
+        private final long cacheHits;
+        private final long cacheMisses;
+        private final long coalesced;
+        private final HistogramSnapshot queueTime;
+        private final HistogramSnapshot latency;
+
+        private String key() {
+            return side + " " + interfaceName + "." + methodName;
+        }
+
+        private MethodSnapshot since(MethodSnapshot previous) {
+            if (previous == null) {
+                return this;
+            }
+            return new MethodSnapshot(side, interfaceName, methodName, calls - previous.calls,
+                    errors - previous.errors, inFlight, cacheHits - previous.cacheHits, cacheMisses - previous.cacheMisses,
+                    coalesced - previous.coalesced, queueTime.since(previous.queueTime), latency.since(previous.latency));
+        }
+
+        @Override
+        public String toString() {
+            return "[" + key() + "] calls=" + calls + " errors=" + errors + " inFlight=" + inFlight
+                    + (cacheHits + cacheMisses > 0 ? " cacheHits=" + cacheHits + " cacheMisses=" + cacheMisses : "")
+                    + (coalesced > 0 ? " coalesced=" + coalesced : "")
+                    + "\n  queue: " + queueTime + "\n  latency: " + latency;
+        }
+    }
+
+    /**
+     * 一种序列化方式的统计
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SerializerSnapshot {
+        // 编号见Serializer
+        private final int serializerType;
+        private final long bytesOut;
+        private final long bytesIn;
+        private final HistogramSnapshot encodeTime;
+        private final HistogramSnapshot decodeTime;
+
+        private SerializerSnapshot since(SerializerSnapshot previous) {
+            if (previous == null) {
+                return this;
+            }
+            return new SerializerSnapshot(serializerType, bytesOut - previous.bytesOut, bytesIn - previous.bytesIn,
+                    encodeTime.since(previous.encodeTime), decodeTime.since(previous.decodeTime));
+        }
+
+        @Override
+        public String toString() {
+            return "[serializer " + serializerType + "] bytesOut=" + bytesOut + " bytesIn=" + bytesIn
+                    + "\n  encode: " + encodeTime + "\n  decode: " + decodeTime;
+        }
+    }
+}
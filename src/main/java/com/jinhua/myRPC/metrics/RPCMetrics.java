@@ -0,0 +1,94 @@
+package com.jinhua.myRPC.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内的调用统计，客户端、服务端和编解码器在调用过程中记录，snapshot()随时拉取
+ * 接口名 -> 方法名两层map，查找时不拼接字符串
+ */
+public class RPCMetrics {
+    public static final String CLIENT = "client";
+    public static final String SERVER = "server";
+    // 服务端找不到对应服务方法的请求都记在这一项，接口名和方法名来自网络，不能作为统计的key
+    public static final String UNKNOWN = "unknown";
+
+    private static final Map<String, Map<String, MethodMetrics>> CLIENT_METHODS = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, MethodMetrics>> SERVER_METHODS = new ConcurrentHashMap<>();
+
+    // 序列化方式编号 -> 统计，编号范围和SerializerRegistry一致
+    private static final AtomicReferenceArray<SerializerMetrics> SERIALIZERS = new AtomicReferenceArray<>(256);
+
+    // 客户端收到时对应的请求已经结束（通常是已经超时）的响应数
+    private static final LongAdder LATE_RESPONSES = new LongAdder();
+
+    private RPCMetrics() {
+    }
+
+    public static MethodMetrics client(String interfaceName, String methodName) {
+        return of(CLIENT_METHODS, interfaceName, methodName);
+    }
+
+    public static MethodMetrics server(String interfaceName, String methodName) {
+        return of(SERVER_METHODS, interfaceName, methodName);
+    }
+
+    // 服务端没有注册的方法共用的统计
+    public static MethodMetrics unknownServerMethod() {
+        return of(SERVER_METHODS, UNKNOWN, UNKNOWN);
+    }
+
+    public static void recordLateResponse() {
+        LATE_RESPONSES.increment();
+    }
+
+    public static SerializerMetrics serializer(int serializerType) {
+        int index = serializerType & 0xff;
+        SerializerMetrics metrics = SERIALIZERS.get(index);
+        if (metrics == null) {
+            SERIALIZERS.compareAndSet(index, null, new SerializerMetrics());
+            metrics = SERIALIZERS.get(index);
+        }
+        return metrics;
+    }
+
+    private static MethodMetrics of(Map<String, Map<String, MethodMetrics>> methods, String interfaceName, String methodName) {
+        Map<String, MethodMetrics> byMethod = methods.get(interfaceName);
+        if (byMethod == null) {
+            byMethod = methods.computeIfAbsent(interfaceName, k -> new ConcurrentHashMap<>());
+        }
+        MethodMetrics metrics = byMethod.get(methodName);
+        if (metrics == null) {
+            metrics = byMethod.computeIfAbsent(methodName, k -> new MethodMetrics());
+        }
+        return metrics;
+    }
+
+    // 拉取当前所有统计，值是从进程启动开始的累计值
+    public static MetricsSnapshot snapshot() {
+        List<MetricsSnapshot.MethodSnapshot> methods = new ArrayList<>();
+        collect(CLIENT, CLIENT_METHODS, methods);
+        collect(SERVER, SERVER_METHODS, methods);
+        List<MetricsSnapshot.SerializerSnapshot> serializers = new ArrayList<>();
+        for (int i = 0; i < SERIALIZERS.length(); i++) {
+            SerializerMetrics metrics = SERIALIZERS.get(i);
+            if (metrics != null) {
+                serializers.add(metrics.snapshot(i));
+            }
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), methods, serializers, LATE_RESPONSES.sum());
+    }
+
+    private static void collect(String side, Map<String, Map<String, MethodMetrics>> methods,
+                                List<MetricsSnapshot.MethodSnapshot> result) {
+        for (Map.Entry<String, Map<String, MethodMetrics>> service : methods.entrySet()) {
+            for (Map.Entry<String, MethodMetrics> method : service.getValue().entrySet()) {
+                result.add(method.getValue().snapshot(side, service.getKey(), method.getKey()));
+            }
+        }
+    }
+}
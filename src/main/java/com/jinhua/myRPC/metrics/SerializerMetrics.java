@@ -0,0 +1,30 @@
+package com.jinhua.myRPC.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一种序列化方式的统计：收发的字节数，以及编码、解码一帧的耗时（包括压缩和解压）
+ * 字节数是帧中数据部分的长度，压缩时为压缩后的长度
+ */
+public class SerializerMetrics {
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+
+    private final LatencyHistogram encodeTime = new LatencyHistogram();
+    private final LatencyHistogram decodeTime = new LatencyHistogram();
+
+    public void recordEncode(long nanos, int bytes) {
+        encodeTime.record(nanos);
+        bytesOut.add(bytes);
+    }
+
+    public void recordDecode(long nanos, int bytes) {
+        decodeTime.record(nanos);
+        bytesIn.add(bytes);
+    }
+
+    MetricsSnapshot.SerializerSnapshot snapshot(int serializerType) {
+        return new MetricsSnapshot.SerializerSnapshot(serializerType, bytesOut.sum(), bytesIn.sum(),
+                encodeTime.snapshot(), decodeTime.snapshot());
+    }
+}
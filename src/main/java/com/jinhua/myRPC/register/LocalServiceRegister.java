@@ -0,0 +1,64 @@
+package com.jinhua.myRPC.register;
+
+import com.jinhua.myRPC.LoadBalance.ConsistentHashLoadBalance;
+import com.jinhua.myRPC.LoadBalance.LoadBalance;
+import com.jinhua.myRPC.common.RPCRequest;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内的注册中心，不依赖zookeeper
+ * 用于测试和单机部署：服务端和客户端在同一个进程里共用同一个实例，见ServiceRegistries.useLocal()
+ */
+public class LocalServiceRegister implements ServiceRegister {
+    // 服务名 -> 地址列表，地址格式和zookeeper节点名一致：host:port
+    private final Map<String, List<String>> services = new ConcurrentHashMap<>();
+
+    // 地址 -> 权重
+    private final Map<String, Integer> weights = new ConcurrentHashMap<>();
+
+    private volatile LoadBalance loadBalance = new ConsistentHashLoadBalance();
+
+    // 更换负载均衡策略
+    public void setLoadBalance(LoadBalance loadBalance) {
+        this.loadBalance = loadBalance;
+    }
+
+    @Override
+    public void register(String serviceName, InetSocketAddress serverAddress) {
+        register(serviceName, serverAddress, LoadBalance.DEFAULT_WEIGHT);
+    }
+
+    @Override
+    public void register(String serviceName, InetSocketAddress serverAddress, int weight) {
+        String address = serverAddress.getHostName() + ":" + serverAddress.getPort();
+        weights.put(address, weight);
+        List<String> addressList = services.computeIfAbsent(serviceName, k -> new CopyOnWriteArrayList<>());
+        if (!addressList.contains(address)) {
+            addressList.add(address);
+        }
+    }
+
+    // 服务下线
+    public void unregister(String serviceName, InetSocketAddress serverAddress) {
+        List<String> addressList = services.get(serviceName);
+        if (addressList != null) {
+            addressList.remove(serverAddress.getHostName() + ":" + serverAddress.getPort());
+        }
+    }
+
+    @Override
+    public InetSocketAddress serviceDiscovery(String serviceName, RPCRequest request) {
+        List<String> addressList = services.get(serviceName);
+        if (addressList == null || addressList.isEmpty()) {
+            System.out.println("没有可用的服务地址：" + serviceName);
+            return null;
+        }
+        String[] result = loadBalance.doSelect(addressList, weights, request).split(":");
+        return new InetSocketAddress(result[0], Integer.parseInt(result[1]));
+    }
+}
@@ -0,0 +1,49 @@
+package com.jinhua.myRPC.register;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * zookeeper注册中心的连接配置
+ * 同一个进程里配置相同的ZkServiceRegister只会创建一个，共用一个zookeeper会话
+ */
+@Data
+@Builder
+public class RegistryConfig {
+    // zookeeper地址，多个地址用逗号分隔
+    @Builder.Default
+    private String connectString = "192.168.157.100:32189";
+
+    // 会话超时时间，服务端下线后临时节点最多保留这么久
+    @Builder.Default
+    private int sessionTimeoutMs = 40000;
+
+    // 建立连接的超时时间
+    @Builder.Default
+    private int connectionTimeoutMs = 15000;
+
+    // 所有服务节点的根路径
+    @Builder.Default
+    private String namespace = "MyRPC";
+
+    // 指数退避重试的初始等待时间和最大重试次数
+    @Builder.Default
+    private int baseSleepTimeMs = 1000;
+
+    @Builder.Default
+    private int maxRetries = 3;
+
+    // 默认配置，地址和根路径可以通过启动参数 -Dmyrpc.registry.address、-Dmyrpc.registry.namespace 覆盖
+    public static RegistryConfig defaultConfig() {
+        RegistryConfigBuilder builder = RegistryConfig.builder();
+        String address = System.getProperty("myrpc.registry.address");
+        if (address != null) {
+            builder.connectString(address);
+        }
+        String namespace = System.getProperty("myrpc.registry.namespace");
+        if (namespace != null) {
+            builder.namespace(namespace);
+        }
+        return builder.build();
+    }
+}
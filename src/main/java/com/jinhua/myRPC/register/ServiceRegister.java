@@ -13,6 +13,11 @@ public interface ServiceRegister {
     // 服务注册：服务名字+服务地址
     void register(String serviceName, InetSocketAddress serverAddress);
 
+    // 带权重的服务注册，权重越大分到的请求越多，只有加权的负载均衡器会使用
+    default void register(String serviceName, InetSocketAddress serverAddress, int weight) {
+        register(serviceName, serverAddress);
+    }
+
     // 服务发现：根据服务名字查询服务地址
     InetSocketAddress serviceDiscovery(String serviceName, RPCRequest request);
 }
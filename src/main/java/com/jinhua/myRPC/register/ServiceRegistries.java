@@ -0,0 +1,65 @@
+package com.jinhua.myRPC.register;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内共享的注册中心
+ * 客户端和服务端默认都从这里获取注册中心，同一个zookeeper地址和根路径只建立一次连接，
+ * 进程退出时统一关闭，临时节点随会话关闭立即删除，不用等会话超时
+ */
+public class ServiceRegistries {
+    // 连接地址+根路径 -> 注册中心
+    private static final Map<String, ZkServiceRegister> ZK_REGISTERS = new ConcurrentHashMap<>();
+
+    // 不指定时使用的注册中心，第一次使用时按默认配置创建
+    private static volatile ServiceRegister defaultRegister;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ServiceRegistries::shutdown, "registry-shutdown"));
+    }
+
+    private ServiceRegistries() {
+    }
+
+    public static ServiceRegister getDefault() {
+        ServiceRegister register = defaultRegister;
+        if (register == null) {
+            synchronized (ServiceRegistries.class) {
+                register = defaultRegister;
+                if (register == null) {
+                    register = zookeeper(RegistryConfig.defaultConfig());
+                    defaultRegister = register;
+                }
+            }
+        }
+        return register;
+    }
+
+    // 替换默认注册中心，需要在创建客户端和服务端之前调用
+    public static void setDefault(ServiceRegister register) {
+        defaultRegister = register;
+    }
+
+    // 默认注册中心改为进程内实现，不连接zookeeper
+    public static LocalServiceRegister useLocal() {
+        LocalServiceRegister register = new LocalServiceRegister();
+        setDefault(register);
+        return register;
+    }
+
+    // 按配置获取共享的zookeeper注册中心
+    public static ZkServiceRegister zookeeper(RegistryConfig config) {
+        return ZK_REGISTERS.computeIfAbsent(config.getConnectString() + "/" + config.getNamespace(),
+                k -> new ZkServiceRegister(config));
+    }
+
+    // 关闭所有zookeeper连接
+    public static void shutdown() {
+        for (ZkServiceRegister register : ZK_REGISTERS.values()) {
+            register.close();
+        }
+        ZK_REGISTERS.clear();
+        defaultRegister = null;
+    }
+}
@@ -7,11 +7,19 @@ import com.jinhua.myRPC.common.RPCRequest;
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.zookeeper.CreateMode;
 
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 使用zookeeper作为服务注册和发现中心
@@ -20,50 +28,127 @@ public class ZkServiceRegister implements ServiceRegister{
     // curator 提供的zookeeper客户端
     private CuratorFramework client;
 
-    // zk的根路径节点
-    private static final String ROOT_PATH = "MyRPC";
-
     // 初始化随机的负载均衡器
-    private LoadBalance loadBalance = new ConsistentHashLoadBalance();
+    private volatile LoadBalance loadBalance = new ConsistentHashLoadBalance();
+
+    // 服务节点数据中权重的前缀
+    private static final String WEIGHT_PREFIX = "weight=";
+
+    // 服务名 -> 本地缓存的地址，由zookeeper的watcher保持更新
+    private final Map<String, ServiceAddresses> addressCache = new ConcurrentHashMap<>();
+
+    // 服务名 -> 监听该服务节点的watcher
+    private final Map<String, CuratorCache> watchers = new ConcurrentHashMap<>();
 
     // zk客户端初始化，并与zk服务端建立连接
+    // 一般通过ServiceRegistries获取共享的实例，不要每个客户端都创建一个
     public ZkServiceRegister() {
+        this(RegistryConfig.defaultConfig());
+    }
+
+    public ZkServiceRegister(RegistryConfig config) {
         // 指数退避策略
-        RetryPolicy policy = new ExponentialBackoffRetry(1000, 3);
+        RetryPolicy policy = new ExponentialBackoffRetry(config.getBaseSleepTimeMs(), config.getMaxRetries());
 
-        this.client = CuratorFrameworkFactory.builder().connectString("192.168.157.100:32189")
-                .sessionTimeoutMs(40000).retryPolicy(policy).namespace(ROOT_PATH).build();
+        this.client = CuratorFrameworkFactory.builder().connectString(config.getConnectString())
+                .sessionTimeoutMs(config.getSessionTimeoutMs()).connectionTimeoutMs(config.getConnectionTimeoutMs())
+                .retryPolicy(policy).namespace(config.getNamespace()).build();
         this.client.start();
         System.out.println("zookeeper 连接成功");
     }
 
+    // 关闭所有watcher和zookeeper会话，本实例注册的临时节点随之删除
+    public void close() {
+        for (CuratorCache cache : watchers.values()) {
+            cache.close();
+        }
+        watchers.clear();
+        client.close();
+    }
+
+    // 更换负载均衡策略
+    public void setLoadBalance(LoadBalance loadBalance) {
+        this.loadBalance = loadBalance;
+    }
 
     @Override
     public void register(String serviceName, InetSocketAddress serverAddress) {
+        register(serviceName, serverAddress, LoadBalance.DEFAULT_WEIGHT);
+    }
+
+    // 权重作为节点数据保存：weight=100
+    @Override
+    public void register(String serviceName, InetSocketAddress serverAddress, int weight) {
         try {
             if (client.checkExists().forPath("/" + serviceName) == null) {
                 client.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath("/" + serviceName);
             }
             String path = "/" + serviceName +"/"+ getServiceAddress(serverAddress);
             // 临时节点，服务器下线就删除节点
-            client.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL).forPath(path);
+            client.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL)
+                    .forPath(path, (WEIGHT_PREFIX + weight).getBytes(StandardCharsets.UTF_8));
 
         } catch (Exception e) {
             System.out.println("此服务已经存在");
         }
     }
 
-    // 服务发现
+    // 服务发现，只读本地缓存，不再每次请求都访问zookeeper
     @Override
     public InetSocketAddress serviceDiscovery(String serviceName, RPCRequest request) {
+        ServiceAddresses addresses = getServiceAddresses(serviceName);
+        if (addresses == null || addresses.addressList.isEmpty()) {
+            System.out.println("没有可用的服务地址：" + serviceName);
+            return null;
+        }
+        String balance = loadBalance.doSelect(addresses.addressList, addresses.weights, request);
+        return addresses.resolved.get(balance);
+    }
+
+    // 第一次发现某个服务时开始监听它的节点，并同步读取一次地址作为初始值
+    // 初始值里没有读节点数据，权重都按默认值，watcher初始化完成后替换为带权重的地址
+    private ServiceAddresses getServiceAddresses(String serviceName) {
+        ServiceAddresses addresses = addressCache.get(serviceName);
+        if (addresses != null) {
+            return addresses;
+        }
+        watchers.computeIfAbsent(serviceName, this::watch);
         try {
-            List<String> strings = client.getChildren().forPath("/" + serviceName);
-            String balance = loadBalance.doSelect(strings, request);
-            return parseAddress(balance);
+            List<String> children = client.getChildren().forPath("/" + serviceName);
+            addressCache.putIfAbsent(serviceName, new ServiceAddresses(children, Collections.emptyMap()));
         } catch (Exception e) {
             e.printStackTrace();
         }
-        return null;
+        return addressCache.get(serviceName);
+    }
+
+    // 监听服务节点下地址的增减，变化时整体替换本地缓存
+    // zookeeper连不上时CuratorCache保留已有数据，本地缓存继续使用最后一次拿到的地址
+    private CuratorCache watch(String serviceName) {
+        CuratorCache cache = CuratorCache.build(client, "/" + serviceName);
+        CuratorCacheListener listener = CuratorCacheListener.builder()
+                .forInitialized(() -> refresh(serviceName, cache))
+                .forAll((type, oldData, data) -> refresh(serviceName, cache))
+                .afterInitialized()
+                .build();
+        cache.listenable().addListener(listener);
+        cache.start();
+        return cache;
+    }
+
+    private void refresh(String serviceName, CuratorCache cache) {
+        String prefix = "/" + serviceName + "/";
+        List<String> children = new ArrayList<>();
+        Map<String, Integer> weights = new HashMap<>();
+        cache.stream()
+                .filter(data -> data.getPath().startsWith(prefix))
+                .forEach(data -> {
+                    String address = data.getPath().substring(prefix.length());
+                    children.add(address);
+                    weights.put(address, parseWeight(data.getData()));
+                });
+        addressCache.put(serviceName, new ServiceAddresses(children, weights));
+        System.out.println("服务" + serviceName + "的地址更新为" + children);
     }
 
     // 地址 -> 192.168.157.100:32189
@@ -73,9 +158,45 @@ public class ZkServiceRegister implements ServiceRegister{
                 serverAddress.getPort();
     }
 
+    // 节点数据 -> 权重，没有数据或格式不对（例如旧版本注册的节点）按默认权重
+    private static int parseWeight(byte[] data) {
+        if (data != null) {
+            String text = new String(data, StandardCharsets.UTF_8);
+            if (text.startsWith(WEIGHT_PREFIX)) {
+                try {
+                    return Integer.parseInt(text.substring(WEIGHT_PREFIX.length()));
+                } catch (NumberFormatException e) {
+                    System.out.println("权重格式错误：" + text);
+                }
+            }
+        }
+        return LoadBalance.DEFAULT_WEIGHT;
+    }
+
     // 192.168.157.100:32189 -> 地址
-    private InetSocketAddress parseAddress(String address) {
+    private static InetSocketAddress parseAddress(String address) {
         String[] result = address.split(":");
         return new InetSocketAddress(result[0], Integer.parseInt(result[1]));
     }
+
+    // 某个服务的一份地址快照，创建后不再修改，地址提前解析好
+    private static class ServiceAddresses {
+        // 交给负载均衡器选择的地址列表
+        private final List<String> addressList;
+
+        // 地址字符串 -> 解析好的地址
+        private final Map<String, InetSocketAddress> resolved;
+
+        // 地址字符串 -> 权重
+        private final Map<String, Integer> weights;
+
+        ServiceAddresses(List<String> children, Map<String, Integer> weights) {
+            this.addressList = Collections.unmodifiableList(new ArrayList<>(children));
+            this.weights = Collections.unmodifiableMap(new HashMap<>(weights));
+            this.resolved = new HashMap<>();
+            for (String address : children) {
+                resolved.put(address, parseAddress(address));
+            }
+        }
+    }
 }
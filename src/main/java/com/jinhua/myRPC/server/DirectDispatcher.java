@@ -0,0 +1,13 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.common.RPCRequest;
+
+/**
+ * 直接在IO线程上执行服务方法，没有线程切换，只适合执行很快且不会阻塞的服务
+ */
+public class DirectDispatcher implements Dispatcher {
+    @Override
+    public void dispatch(RPCRequest request, Runnable task) {
+        task.run();
+    }
+}
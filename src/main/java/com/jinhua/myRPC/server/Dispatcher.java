@@ -0,0 +1,20 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.common.RPCRequest;
+
+/**
+ * 请求分发器，决定服务方法在哪个线程上执行
+ * 实现类：
+ * DirectDispatcher：直接在Netty的IO线程上执行
+ * ThreadPoolDispatcher：所有服务共用一个有界线程池
+ * IsolatedDispatcher：每个服务接口一个独立的有界线程池，慢服务不影响其它服务
+ * VirtualThreadDispatcher：每个请求一个虚拟线程（JDK21+），限制同时执行的请求数
+ */
+public interface Dispatcher {
+    // 把请求的处理交给对应的线程执行，排队已满时抛出RejectedExecutionException
+    void dispatch(RPCRequest request, Runnable task);
+
+    // 服务端关闭时释放线程资源
+    default void shutdown() {
+    }
+}
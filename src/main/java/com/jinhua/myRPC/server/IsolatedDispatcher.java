@@ -0,0 +1,52 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.common.RPCRequest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 每个服务接口使用独立的有界线程池，一个服务变慢只会占满自己的线程和队列
+ * 没有单独配置的服务按默认线程数和队列长度创建线程池
+ */
+public class IsolatedDispatcher implements Dispatcher {
+    // 服务接口名 -> 该服务的线程池
+    private final Map<String, ThreadPoolDispatcher> dispatchers = new ConcurrentHashMap<>();
+
+    private final int defaultThreads;
+    private final int defaultQueueCapacity;
+
+    public IsolatedDispatcher(int defaultThreads, int defaultQueueCapacity) {
+        this.defaultThreads = defaultThreads;
+        this.defaultQueueCapacity = defaultQueueCapacity;
+    }
+
+    // 单独配置某个服务的线程数和队列长度，需要在服务端启动前调用
+    public IsolatedDispatcher configure(String interfaceName, int threads, int queueCapacity) {
+        ThreadPoolDispatcher old = dispatchers.put(interfaceName,
+                new ThreadPoolDispatcher(poolName(interfaceName), threads, queueCapacity));
+        if (old != null) {
+            old.shutdown();
+        }
+        return this;
+    }
+
+    @Override
+    public void dispatch(RPCRequest request, Runnable task) {
+        dispatchers.computeIfAbsent(request.getInterfaceName(),
+                name -> new ThreadPoolDispatcher(poolName(name), defaultThreads, defaultQueueCapacity))
+                .dispatch(request, task);
+    }
+
+    @Override
+    public void shutdown() {
+        for (ThreadPoolDispatcher dispatcher : dispatchers.values()) {
+            dispatcher.shutdown();
+        }
+    }
+
+    // 线程名使用服务接口的简单类名，方便排查
+    private String poolName(String interfaceName) {
+        return "rpc-" + interfaceName.substring(interfaceName.lastIndexOf('.') + 1);
+    }
+}
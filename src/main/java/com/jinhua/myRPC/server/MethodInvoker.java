@@ -0,0 +1,64 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.common.RPCSingleFlight;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * 服务方法的调用器，在注册服务时就解析好
+ * 方法句柄已经绑定了服务实现对象，并把参数数组展开成方法参数，调用时不再反射查找方法
+ */
+public class MethodInvoker {
+    // 服务接口中声明的方法
+    private final Method method;
+
+    // 方法参数类型，和请求中的paramsTypes比较
+    private final Class<?>[] paramsTypes;
+
+    // 签名统一为 (Object[])Object
+    private final MethodHandle handle;
+
+    // 接口方法上标注了RPCSingleFlight，相同的并发请求只执行一次
+    private final boolean singleFlight;
+
+    public MethodInvoker(Object service, Method method) throws IllegalAccessException {
+        this.method = method;
+        this.paramsTypes = method.getParameterTypes();
+        this.handle = MethodHandles.publicLookup().unreflect(method)
+                .bindTo(service)
+                .asSpreader(Object[].class, paramsTypes.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        this.singleFlight = method.isAnnotationPresent(RPCSingleFlight.class);
+    }
+
+    // 请求的参数类型是否和这个方法一致，无参方法的请求参数类型可能为null
+    public boolean matches(Class<?>[] requestParamsTypes) {
+        if (requestParamsTypes == null) {
+            return paramsTypes.length == 0;
+        }
+        return Arrays.equals(paramsTypes, requestParamsTypes);
+    }
+
+    // 调用服务方法，服务方法抛出的异常原样抛出，不再包装成InvocationTargetException
+    public Object invoke(Object[] params) throws Throwable {
+        return handle.invokeExact(params);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public boolean isSingleFlight() {
+        return singleFlight;
+    }
+
+    // 返回值是Iterator的方法为流式调用，结果按客户端的信用逐个发送
+    public boolean isStreaming() {
+        return method.getReturnType() == Iterator.class;
+    }
+}
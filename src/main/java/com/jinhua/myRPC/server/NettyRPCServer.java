@@ -1,10 +1,13 @@
 package com.jinhua.myRPC.server;
 
+import com.jinhua.myRPC.codec.Serializer;
+import com.jinhua.myRPC.common.TransportConfig;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import lombok.AllArgsConstructor;
 
 /**
@@ -13,18 +16,39 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 public class NettyRPCServer implements RPCServer{
     private ServiceProvider serviceProvider;
+
+    // 服务方法的执行线程，默认使用有界的业务线程池
+    private Dispatcher dispatcher;
+
+    private NettyServerConfig config;
+
+    public NettyRPCServer(ServiceProvider serviceProvider) {
+        this(serviceProvider, new ThreadPoolDispatcher());
+    }
+
+    public NettyRPCServer(ServiceProvider serviceProvider, Dispatcher dispatcher) {
+        this(serviceProvider, dispatcher, NettyServerConfig.defaultConfig());
+    }
+
     @Override
     public void start(int port) {
+        if (Serializer.getSerializerByCode(config.getSerializerType()) == null) {
+            throw new IllegalArgumentException("不存在的序列化方式：" + config.getSerializerType());
+        }
+        TransportConfig transport = config.getTransport();
         // netty 服务线程组boss负责建立连接， work负责具体的请求
-        NioEventLoopGroup bossGroup = new NioEventLoopGroup();
-        NioEventLoopGroup workGroup = new NioEventLoopGroup();
-        System.out.println("Netty服务端启动了...端口号为" + port );
+        EventLoopGroup bossGroup = transport.newEventLoopGroup(transport.getBossThreads(), "rpc-boss");
+        EventLoopGroup workGroup = transport.newEventLoopGroup(transport.getWorkerThreads(), "rpc-worker");
+        System.out.println("Netty服务端启动了...端口号为" + port + (transport.useEpoll() ? "，使用epoll" : "，使用NIO"));
         try {
             /// 启动netty服务器
             ServerBootstrap serverBootstrap = new ServerBootstrap();
             // 初始化
-            serverBootstrap.group(bossGroup,workGroup).channel(NioServerSocketChannel.class)
-                    .childHandler(new NettyServerInitializer(serviceProvider));
+            serverBootstrap.group(bossGroup,workGroup).channel(transport.serverChannelClass())
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                            config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark()))
+                    .childHandler(new NettyServerInitializer(serviceProvider, dispatcher, config, new SingleFlight()));
+            transport.apply(serverBootstrap);
             // 阻塞等待端口绑定完成
             ChannelFuture channelFuture = serverBootstrap.bind(port).sync();
 
@@ -35,6 +59,7 @@ public class NettyRPCServer implements RPCServer{
         } finally {
             bossGroup.shutdownGracefully();
             workGroup.shutdownGracefully();
+            dispatcher.shutdown();
         }
     }
 }
@@ -1,13 +1,25 @@
 package com.jinhua.myRPC.server;
 
+import com.jinhua.myRPC.codec.MessageType;
+import com.jinhua.myRPC.codec.SharedResponse;
+import com.jinhua.myRPC.codec.StreamFrame;
+import com.jinhua.myRPC.common.RPCContext;
 import com.jinhua.myRPC.common.RPCRequest;
 import com.jinhua.myRPC.common.RPCResponse;
+import com.jinhua.myRPC.metrics.MethodMetrics;
+import com.jinhua.myRPC.metrics.RPCMetrics;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import lombok.AllArgsConstructor;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 服务端处理的数据格式是RPCRequest
@@ -15,32 +27,257 @@ import java.lang.reflect.Method;
 @AllArgsConstructor
 public class NettyRPCServerHandler extends SimpleChannelInboundHandler<RPCRequest> {
     private ServiceProvider serviceProvider;
+
+    // 决定服务方法在哪个线程上执行
+    private Dispatcher dispatcher;
+
+    // 所有连接共用，合并标注了RPCSingleFlight的方法的相同请求
+    private SingleFlight singleFlight;
+
+    // 这个连接上还没有结束的流式调用，请求id -> 流
+    private final Map<Long, ServerStream> streams = new ConcurrentHashMap<>();
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RPCRequest rpcRequest) throws Exception {
-        RPCResponse response = getResponse(rpcRequest);
+        // 收到请求时就按调用方剩余的时间算出截止时间，在队列中等待的时间也计算在内
+        Long deadline = RPCContext.deadlineOf(rpcRequest);
+        // 得到注册服务时已经解析好的方法调用器，不再反射查找方法
+        MethodInvoker invoker = serviceProvider.getInvoker(rpcRequest.getInterfaceName(),
+                rpcRequest.getMethodName(), rpcRequest.getParamsTypes());
+        // 找不到服务方法时直接在IO线程上返回失败，统计都记在同一项里，不按请求里的名字创建统计和线程池
+        if (invoker == null) {
+            System.out.println("不存在对应的服务方法：" + rpcRequest.getInterfaceName() + "." + rpcRequest.getMethodName());
+            MethodMetrics unknown = RPCMetrics.unknownServerMethod();
+            unknown.begin();
+            unknown.fail();
+            writeResponse(ctx, rpcRequest, RPCResponse.fail());
+            return;
+        }
+        // 按接口和方法统计，排队时间从收到请求开始算
+        MethodMetrics metrics = RPCMetrics.server(rpcRequest.getInterfaceName(), rpcRequest.getMethodName());
+        // 流式调用收到请求时就登记，紧跟在请求后面的信用消息可以找到它
+        ServerStream stream = null;
+        if (invoker.isStreaming()) {
+            stream = new ServerStream(ctx, rpcRequest, dispatcher);
+            streams.put(rpcRequest.getRequestId(), stream);
+        }
+        metrics.begin();
+        execute(ctx, rpcRequest, invoker, metrics, deadline, System.nanoTime(), stream);
+    }
+
+    private void execute(ChannelHandlerContext ctx, RPCRequest rpcRequest, MethodInvoker invoker, MethodMetrics metrics,
+                         Long deadline, long receivedNanos, ServerStream serverStream) {
+        // 已经有相同的请求在执行时不再执行，等它的结果写回
+        SingleFlight.Call call = null;
+        if (invoker.isSingleFlight() && serverStream == null) {
+            call = singleFlight.join(rpcRequest);
+            if (!call.isLeader()) {
+                follow(ctx, rpcRequest, invoker, metrics, deadline, receivedNanos, call);
+                return;
+            }
+            // 服务方法到执行者的截止时间还没有结束（例如返回的CompletableFuture一直不完成）时放弃这次合并，
+            // 等待的请求和之后的相同请求重新执行，不会一直等一个不会结束的执行
+            if (deadline != null) {
+                SingleFlight.Call abandoned = call;
+                ScheduledFuture<?> timer = ctx.executor().schedule(abandoned::abandon,
+                        deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                call.whenDone(shared -> timer.cancel(false));
+            }
+        }
+        SingleFlight.Call leader = call;
+        try {
+            // 服务方法交给业务线程执行，IO线程不被慢服务阻塞
+            dispatcher.dispatch(rpcRequest, () -> {
+                try {
+                    invoke(ctx, rpcRequest, invoker, metrics, deadline, receivedNanos, serverStream, leader);
+                } catch (Throwable e) {
+                    // 出现意料之外的异常时也要放弃这次合并，否则之后的相同请求都会等待一个不会结束的执行
+                    e.printStackTrace();
+                    if (leader != null) {
+                        leader.abandon();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            System.out.println("服务端繁忙，拒绝请求：" + rpcRequest.getInterfaceName() + "." + rpcRequest.getMethodName());
+            metrics.fail();
+            replyUnexecuted(ctx, rpcRequest, leader, RPCResponse.reject());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            metrics.fail();
+            replyUnexecuted(ctx, rpcRequest, leader, RPCResponse.fail());
+        }
+    }
+
+    // 在业务线程上执行服务方法并写回
+    private void invoke(ChannelHandlerContext ctx, RPCRequest rpcRequest, MethodInvoker invoker, MethodMetrics metrics,
+                        Long deadline, long receivedNanos, ServerStream serverStream, SingleFlight.Call leader) {
+        long startNanos = System.nanoTime();
+        metrics.recordQueue(startNanos - receivedNanos);
+        // 调用方已经不再等待，不执行服务方法
+        if (RPCContext.isExpired(deadline)) {
+            System.out.println("请求已超时，不再执行：" + rpcRequest.getInterfaceName() + "." + rpcRequest.getMethodName());
+            metrics.fail();
+            replyUnexecuted(ctx, rpcRequest, leader, RPCResponse.timeout());
+            return;
+        }
+        RPCContext.setDeadline(deadline);
+        try {
+            // 服务方法异步返回时，在其完成后再写回
+            getResponse(rpcRequest, invoker).thenAccept(response -> {
+                // 流式调用的服务方法返回了Iterator，之后按信用发送，发送结束才算调用结束
+                if (serverStream != null && response.getCode() == 200) {
+                    serverStream.start((Iterator<?>) response.getData(), end -> {
+                        streams.remove(rpcRequest.getRequestId());
+                        metrics.end(startNanos, end == null || end.getCode() == 200);
+                    });
+                    return;
+                }
+                metrics.end(startNanos, response.getCode() == 200);
+                reply(ctx, rpcRequest, leader, response);
+            }).whenComplete((v, e) -> {
+                if (e != null) {
+                    e.printStackTrace();
+                    if (leader != null) {
+                        leader.abandon();
+                    }
+                }
+            });
+        } finally {
+            RPCContext.clear();
+        }
+    }
+
+    // 等待执行者的结果，最多等到这个请求自己的截止时间；超时、共用结果和重新执行三者只会发生一个
+    private void follow(ChannelHandlerContext ctx, RPCRequest rpcRequest, MethodInvoker invoker, MethodMetrics metrics,
+                        Long deadline, long receivedNanos, SingleFlight.Call call) {
+        AtomicBoolean answered = new AtomicBoolean();
+        ScheduledFuture<?> timer = deadline == null ? null : ctx.executor().schedule(() -> {
+            if (answered.compareAndSet(false, true)) {
+                metrics.fail();
+                writeResponse(ctx, rpcRequest, RPCResponse.timeout());
+            }
+        }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        call.whenDone(shared -> {
+            if (!answered.compareAndSet(false, true)) {
+                return;
+            }
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            // 执行者没有执行服务方法，重新加入，由等待的请求之一重新执行
+            if (shared == null) {
+                execute(ctx, rpcRequest, invoker, metrics, deadline, receivedNanos, null);
+                return;
+            }
+            // 共用的结果按这个请求自己的截止时间统计，调用方已经不再等待时按超时处理
+            metrics.recordCoalesced();
+            if (RPCContext.isExpired(deadline)) {
+                metrics.fail();
+                writeResponse(ctx, rpcRequest, RPCResponse.timeout());
+                return;
+            }
+            metrics.end(receivedNanos, shared.getResponse().getCode() == 200);
+            ctx.writeAndFlush(shared.forRequest(rpcRequest.getRequestId()));
+        });
+    }
+
+    // 写回服务方法的执行结果；合并执行时同时把结果交给等待的请求，所有请求共用一份序列化后的数据
+    // 流式调用没有开始就结束时，以结束消息返回
+    private void reply(ChannelHandlerContext ctx, RPCRequest rpcRequest, SingleFlight.Call call, RPCResponse response) {
+        if (streams.remove(rpcRequest.getRequestId()) != null) {
+            ctx.writeAndFlush(StreamFrame.end(rpcRequest.getRequestId(), response));
+            return;
+        }
+        if (call == null) {
+            writeResponse(ctx, rpcRequest, response);
+            return;
+        }
+        SharedResponse shared = call.complete(response);
+        ctx.writeAndFlush(shared.forRequest(rpcRequest.getRequestId()));
+    }
+
+    // 服务方法没有执行（超时或被拒绝）时只回复当前请求，等待的相同请求重新执行
+    private void replyUnexecuted(ChannelHandlerContext ctx, RPCRequest rpcRequest, SingleFlight.Call call, RPCResponse response) {
+        if (call != null) {
+            call.abandon();
+        }
+        reply(ctx, rpcRequest, null, response);
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, RPCRequest rpcRequest, RPCResponse response) {
+        response.setRequestId(rpcRequest.getRequestId());
+        // 长连接，写回响应后不关闭，客户端后续请求继续复用
         ctx.writeAndFlush(response);
+    }
+
+    // 客户端发来的流式调用信用和取消消息，其它消息按请求处理
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof StreamFrame) {
+            StreamFrame frame = (StreamFrame) msg;
+            ServerStream stream = streams.get(frame.getRequestId());
+            if (stream != null) {
+                if (frame.getType() == MessageType.STREAM_CREDIT) {
+                    stream.addCredit(frame.getCredit());
+                } else if (frame.getType() == MessageType.STREAM_CANCEL) {
+                    stream.cancel();
+                }
+            }
+            return;
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    // 连接断开时停止这个连接上所有的流式调用
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        for (ServerStream stream : streams.values()) {
+            stream.cancel();
+        }
+        super.channelInactive(ctx);
+    }
+
+    // 发送缓冲区超过高水位时停止读取新的请求，降到低水位以下后恢复
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        ctx.channel().config().setAutoRead(ctx.channel().isWritable());
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        cause.printStackTrace();
         ctx.close();
     }
 
     /**
      * 根据请求调用对应的方法返回response
+     * 服务方法返回CompletableFuture时，response在其完成后才完成
      * @return
      */
-    RPCResponse getResponse(RPCRequest request) {
-        // 得到服务名
-        String interfaceName = request.getInterfaceName();
-        // 得到服务端相应服务实现类
-        Object service = serviceProvider.getService(interfaceName);
-        // 反射调用方法
-        Method method = null;
+    CompletableFuture<RPCResponse> getResponse(RPCRequest request, MethodInvoker invoker) {
+        if (invoker == null) {
+            System.out.println("不存在对应的服务方法：" + request.getInterfaceName() + "." + request.getMethodName());
+            return CompletableFuture.completedFuture(RPCResponse.fail());
+        }
         try {
-            method = service.getClass().getMethod(request.getMethodName(), request.getParamsTypes());
-            Object invoke = method.invoke(service, request.getParams());
-            return RPCResponse.success(invoke);
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            Object invoke = invoker.invoke(request.getParams());
+            if (invoke instanceof CompletableFuture) {
+                return ((CompletableFuture<?>) invoke).handle((data, e) -> {
+                    if (e != null) {
+                        e.printStackTrace();
+                        System.out.println("方法执行错误");
+                        return RPCResponse.fail();
+                    }
+                    return RPCResponse.success(data);
+                });
+            }
+            return CompletableFuture.completedFuture(RPCResponse.success(invoke));
+        } catch (Throwable e) {
             e.printStackTrace();
             System.out.println("方法执行错误");
-            return RPCResponse.fail();
+            return CompletableFuture.completedFuture(RPCResponse.fail());
         }
     }
 }
@@ -0,0 +1,44 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.common.TransportConfig;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Netty服务端配置
+ */
+@Data
+@Builder
+public class NettyServerConfig {
+    // 连续多少次flush才真正flush一次，读取过程中和业务线程写回的多个响应合并成一次系统调用
+    @Builder.Default
+    private int explicitFlushAfterFlushes = 256;
+
+    // 连接的发送缓冲区超过高水位时暂停读取这个连接的请求，降到低水位以下再恢复
+    // 客户端读得慢时请求不再继续堆积，避免响应占满服务端内存
+    @Builder.Default
+    private int writeBufferLowWaterMark = 512 * 1024;
+
+    @Builder.Default
+    private int writeBufferHighWaterMark = 1024 * 1024;
+
+    // 发送时使用的序列化方式，默认hessian，其它编号见Serializer；接收方按帧头中的编号反序列化，两端可以不同
+    @Builder.Default
+    private int serializerType = 2;
+
+    // 发送时使用的压缩方式，0表示不压缩，其它编号见Compressor
+    @Builder.Default
+    private int compressorType = 0;
+
+    // 序列化后的数据达到多少字节才压缩，小消息压缩得不偿失
+    @Builder.Default
+    private int compressThreshold = 8 * 1024;
+
+    // 线程数、socket选项、epoll等传输配置
+    @Builder.Default
+    private TransportConfig transport = TransportConfig.defaultConfig();
+
+    public static NettyServerConfig defaultConfig() {
+        return NettyServerConfig.builder().build();
+    }
+}
@@ -4,6 +4,7 @@ import com.jinhua.myRPC.codec.*;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import lombok.AllArgsConstructor;
 
 /**
@@ -12,13 +13,26 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 public class NettyServerInitializer extends ChannelInitializer<SocketChannel> {
     private ServiceProvider serviceProvider;
+
+    // 所有连接共用一个分发器
+    private Dispatcher dispatcher;
+
+    private NettyServerConfig config;
+
+    // 所有连接共用，相同的请求来自不同连接时也能合并
+    private SingleFlight singleFlight;
+
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
+        // 合并flush，放在最前面，所有写回的响应都经过它
+        // 读取过程中的flush等到本次读取结束再执行，业务线程写回的flush合并到IO线程的下一个任务里执行
+        pipeline.addLast(new FlushConsolidationHandler(config.getExplicitFlushAfterFlushes(), true));
         // 使用自定义的编解码器
         pipeline.addLast(new MyDecode());
-        // 编码需要传入序列化器，这里是json，还支持ObjectSerializer，也可以自己实现其他的
-        pipeline.addLast(new MyEncode(new HessianSerializer()));
-        pipeline.addLast(new NettyRPCServerHandler(serviceProvider));
+        // 编码需要传入序列化器，按配置的编号从SerializerRegistry中取出，也可以自己实现其他的并注册
+        pipeline.addLast(new MyEncode(Serializer.getSerializerByCode(config.getSerializerType()),
+                Compressor.getCompressorByCode(config.getCompressorType()), config.getCompressThreshold()));
+        pipeline.addLast(new NettyRPCServerHandler(serviceProvider, dispatcher, singleFlight));
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.codec.StreamFrame;
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+import io.netty.channel.ChannelHandlerContext;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 服务端的一个流式调用：服务方法返回的Iterator按客户端给的信用逐个取出发送
+ * 取元素在业务线程上进行，信用用完就让出线程，收到新的信用再重新分发，不会一直占着业务线程；
+ * 同一时刻只有一个线程在读取Iterator，服务方法可以返回按需读取数据库游标、文件等的惰性Iterator
+ */
+class ServerStream {
+    private final ChannelHandlerContext ctx;
+    private final RPCRequest request;
+    private final Dispatcher dispatcher;
+
+    // 客户端允许继续发送的元素个数
+    private final AtomicLong credit = new AtomicLong();
+
+    // 是否已经有线程在发送或者排队等待发送，结束后一直为true
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile Iterator<?> source;
+
+    // 结束时调用，参数为发给客户端的结束消息，客户端取消或连接断开时为null
+    private volatile Consumer<RPCResponse> onFinish;
+
+    private volatile boolean cancelled;
+
+    ServerStream(ChannelHandlerContext ctx, RPCRequest request, Dispatcher dispatcher) {
+        this.ctx = ctx;
+        this.request = request;
+        this.dispatcher = dispatcher;
+    }
+
+    // 服务方法返回后开始发送，source为null时是一个空的流
+    void start(Iterator<?> source, Consumer<RPCResponse> onFinish) {
+        this.onFinish = onFinish;
+        this.source = source == null ? Collections.emptyIterator() : source;
+        schedule();
+    }
+
+    // 以下两个方法在IO线程上调用
+    void addCredit(int n) {
+        credit.addAndGet(n);
+        schedule();
+    }
+
+    // 客户端取消或者连接断开，由发送线程关闭source
+    void cancel() {
+        cancelled = true;
+        schedule();
+    }
+
+    private void schedule() {
+        if (source == null || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatcher.dispatch(request, this::pump);
+        } catch (RejectedExecutionException e) {
+            System.out.println("服务端繁忙，流式调用中止：" + request.getInterfaceName() + "." + request.getMethodName());
+            finish(RPCResponse.reject());
+        }
+    }
+
+    private void pump() {
+        try {
+            while (true) {
+                if (cancelled || !ctx.channel().isActive()) {
+                    finish(null);
+                    return;
+                }
+                if (credit.get() <= 0) {
+                    break;
+                }
+                if (!source.hasNext()) {
+                    finish(RPCResponse.success(null));
+                    return;
+                }
+                Object element = source.next();
+                credit.decrementAndGet();
+                ctx.write(StreamFrame.data(request.getRequestId(), element));
+            }
+            ctx.flush();
+        } catch (Throwable e) {
+            e.printStackTrace();
+            System.out.println("流式调用读取数据错误");
+            finish(RPCResponse.fail());
+            return;
+        }
+        running.set(false);
+        // 让出线程之前又收到了信用或者取消
+        if (cancelled || credit.get() > 0) {
+            schedule();
+        }
+    }
+
+    // 结束后running保持为true，不会再被分发
+    private void finish(RPCResponse result) {
+        if (source instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) source).close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        if (result != null) {
+            ctx.writeAndFlush(StreamFrame.end(request.getRequestId(), result));
+        } else {
+            ctx.flush();
+        }
+        onFinish.accept(result);
+    }
+}
@@ -1,11 +1,14 @@
 package com.jinhua.myRPC.server;
 
+import com.jinhua.myRPC.LoadBalance.LoadBalance;
 import com.jinhua.myRPC.register.ServiceRegister;
-import com.jinhua.myRPC.register.ZkServiceRegister;
-import sun.util.locale.provider.LocaleServiceProviderPool;
+import com.jinhua.myRPC.register.ServiceRegistries;
 
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -15,17 +18,32 @@ public class ServiceProvider {
     // 一个接口可能有多个实现类
     private Map<String, Object> interfaceProvider;
 
+    // 接口名 -> 方法名 -> 同名方法的所有重载，注册服务时就解析好方法句柄
+    private Map<String, Map<String, List<MethodInvoker>>> invokerProvider;
+
     // 服务注册
     private ServiceRegister serviceRegister;
 
     private String host;
     private int port;
 
+    // 本服务端在注册中心的权重，需要在provideServiceInterface之前设置
+    private int weight = LoadBalance.DEFAULT_WEIGHT;
+
     public ServiceProvider(String host, int port) {
+        this(host, port, ServiceRegistries.getDefault());
+    }
+
+    public ServiceProvider(String host, int port, ServiceRegister serviceRegister) {
         this.host = host;
         this.port = port;
         this.interfaceProvider = new HashMap<>();
-        this.serviceRegister = new ZkServiceRegister();
+        this.invokerProvider = new HashMap<>();
+        this.serviceRegister = serviceRegister;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
     }
 
     public void provideServiceInterface(Object service) {
@@ -34,12 +52,46 @@ public class ServiceProvider {
         for (Class clazz : interfaces) {
             // 添加到映射表
             interfaceProvider.put(clazz.getName(), service);
+            invokerProvider.put(clazz.getName(), createInvokers(service, clazz));
             // 在注册中心注册服务
-            serviceRegister.register(clazz.getName(), new InetSocketAddress(host, port));
+            serviceRegister.register(clazz.getName(), new InetSocketAddress(host, port), weight);
         }
     }
 
     public Object getService(String interfaceName) {
         return interfaceProvider.get(interfaceName);
     }
+
+    // 根据接口名、方法名和参数类型找到调用器，找不到返回null
+    public MethodInvoker getInvoker(String interfaceName, String methodName, Class<?>[] paramsTypes) {
+        Map<String, List<MethodInvoker>> methods = invokerProvider.get(interfaceName);
+        if (methods == null) {
+            return null;
+        }
+        List<MethodInvoker> overloads = methods.get(methodName);
+        if (overloads == null) {
+            return null;
+        }
+        for (MethodInvoker invoker : overloads) {
+            if (invoker.matches(paramsTypes)) {
+                return invoker;
+            }
+        }
+        return null;
+    }
+
+    // 为接口中的每个方法生成调用器
+    private Map<String, List<MethodInvoker>> createInvokers(Object service, Class<?> clazz) {
+        Map<String, List<MethodInvoker>> methods = new HashMap<>();
+        for (Method method : clazz.getMethods()) {
+            try {
+                methods.computeIfAbsent(method.getName(), k -> new ArrayList<>())
+                        .add(new MethodInvoker(service, method));
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+                System.out.println("无法访问服务方法" + method);
+            }
+        }
+        return methods;
+    }
 }
@@ -0,0 +1,103 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.codec.SharedResponse;
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 合并相同的并发请求，接口、方法、参数类型和参数值都相同的请求共用一次正在进行的执行
+ * 执行结束后立即移除，之后到达的请求重新执行，不缓存结果；只有服务方法真正执行了，结果才会共用
+ */
+public class SingleFlight {
+    // 正在执行的请求 -> 执行结果
+    private final Map<Key, CompletableFuture<SharedResponse>> calls = new ConcurrentHashMap<>();
+
+    // 加入一次执行，没有相同的请求在执行时当前请求成为执行者
+    public Call join(RPCRequest request) {
+        Key key = new Key(request);
+        CompletableFuture<SharedResponse> future = new CompletableFuture<>();
+        CompletableFuture<SharedResponse> existing = calls.putIfAbsent(key, future);
+        return existing == null ? new Call(key, future, true) : new Call(key, existing, false);
+    }
+
+    /**
+     * 一个请求在一次执行中的位置
+     */
+    public class Call {
+        private final Key key;
+        private final CompletableFuture<SharedResponse> future;
+        private final boolean leader;
+
+        private Call(Key key, CompletableFuture<SharedResponse> future, boolean leader) {
+            this.key = key;
+            this.future = future;
+            this.leader = leader;
+        }
+
+        // 是否由当前请求执行
+        public boolean isLeader() {
+            return leader;
+        }
+
+        // 等待执行者的结果，执行者没有执行服务方法就放弃时收到null
+        public void whenDone(Consumer<SharedResponse> action) {
+            future.thenAccept(action);
+        }
+
+        // 执行者得到结果，先移除再通知等待的请求，之后到达的请求不会拿到这次的结果
+        public SharedResponse complete(RPCResponse response) {
+            calls.remove(key, future);
+            SharedResponse shared = new SharedResponse(response);
+            future.complete(shared);
+            return shared;
+        }
+
+        // 执行者超时、被拒绝或者出错，没有得到服务方法的结果，它的结果不能交给等待的请求
+        // 移除这次执行，等待的请求收到null后各自重新加入，由其中一个重新执行；已经结束时调用没有影响
+        public void abandon() {
+            calls.remove(key, future);
+            future.complete(null);
+        }
+    }
+
+    private static class Key {
+        private final String interfaceName;
+        private final String methodName;
+        private final Class<?>[] paramsTypes;
+        private final Object[] params;
+        private final int hash;
+
+        Key(RPCRequest request) {
+            this.interfaceName = request.getInterfaceName();
+            this.methodName = request.getMethodName();
+            this.paramsTypes = request.getParamsTypes();
+            this.params = request.getParams();
+            int h = interfaceName.hashCode();
+            h = 31 * h + methodName.hashCode();
+            h = 31 * h + Arrays.hashCode(paramsTypes);
+            this.hash = 31 * h + Arrays.deepHashCode(params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && interfaceName.equals(other.interfaceName)
+                    && methodName.equals(other.methodName) && Arrays.equals(paramsTypes, other.paramsTypes)
+                    && Arrays.deepEquals(params, other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
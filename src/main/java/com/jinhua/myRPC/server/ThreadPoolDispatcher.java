@@ -0,0 +1,41 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.common.RPCRequest;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 所有服务共用一个有界的业务线程池，IO线程只负责收发数据
+ * 线程和队列都满时拒绝请求，由调用方返回服务端繁忙的响应
+ */
+public class ThreadPoolDispatcher implements Dispatcher {
+    private final ThreadPoolExecutor threadPool;
+
+    // 默认线程数为cpu核心数的2倍，队列长度1024
+    public ThreadPoolDispatcher() {
+        this(Runtime.getRuntime().availableProcessors() * 2, 1024);
+    }
+
+    public ThreadPoolDispatcher(int threads, int queueCapacity) {
+        this("rpc-business", threads, queueCapacity);
+    }
+
+    public ThreadPoolDispatcher(String poolName, int threads, int queueCapacity) {
+        threadPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new DefaultThreadFactory(poolName),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public void dispatch(RPCRequest request, Runnable task) {
+        threadPool.execute(task);
+    }
+
+    @Override
+    public void shutdown() {
+        threadPool.shutdown();
+    }
+}
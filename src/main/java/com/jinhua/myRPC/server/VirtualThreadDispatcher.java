@@ -0,0 +1,48 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.common.RPCRequest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 每个请求一个虚拟线程，服务方法可以放心阻塞
+ * 运行在不支持虚拟线程的JDK上时退化为不限线程数的普通线程池，见VirtualThreads
+ * 同时执行的请求数受maxConcurrentRequests限制，超出的请求直接拒绝
+ */
+public class VirtualThreadDispatcher implements Dispatcher {
+    private final ExecutorService executor;
+
+    // 同时执行的请求数上限
+    private final Semaphore permits;
+
+    public VirtualThreadDispatcher(int maxConcurrentRequests) {
+        this.executor = VirtualThreads.newPerTaskExecutor("rpc-virtual-fallback");
+        this.permits = new Semaphore(maxConcurrentRequests);
+    }
+
+    @Override
+    public void dispatch(RPCRequest request, Runnable task) {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("同时执行的请求数已达上限");
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
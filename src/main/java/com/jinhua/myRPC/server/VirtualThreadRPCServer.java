@@ -0,0 +1,178 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.codec.FrameCodec;
+import com.jinhua.myRPC.codec.ProtocolConstant;
+import com.jinhua.myRPC.codec.Serializer;
+import com.jinhua.myRPC.codec.StreamFrame;
+import com.jinhua.myRPC.common.RPCContext;
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+import com.jinhua.myRPC.metrics.MethodMetrics;
+import com.jinhua.myRPC.metrics.RPCMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 虚拟线程版服务端：每个连接一个虚拟线程，用简单的阻塞IO读写
+ * 和Netty服务端使用同一套帧格式和序列化器，NettyRPCClient可以直接连接
+ * 连接保持打开，一个连接上可以连续发送多个请求；支持虚拟线程时每个请求再开一个虚拟线程执行，响应可以乱序返回
+ * 运行在不支持虚拟线程的JDK上时，每个连接一个普通线程，连接上的请求按顺序执行
+ * 不支持流式调用，返回Iterator的方法直接以失败结束
+ */
+public class VirtualThreadRPCServer implements RPCServer {
+    private ServiceProvider serviceProvider;
+
+    // 响应使用的序列化器
+    private Serializer serializer;
+
+    private final ThreadFactory threadFactory = VirtualThreads.factory("rpc-connection");
+
+    public VirtualThreadRPCServer(ServiceProvider serviceProvider) {
+        // 和NettyServerInitializer一样默认使用hessian
+        this(serviceProvider, Serializer.getSerializerByCode(2));
+    }
+
+    public VirtualThreadRPCServer(ServiceProvider serviceProvider, Serializer serializer) {
+        this.serviceProvider = serviceProvider;
+        this.serializer = serializer;
+    }
+
+    @Override
+    public void start(int port) {
+        System.out.println("虚拟线程版服务端启动了...端口号为" + port);
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                threadFactory.newThread(() -> serve(socket)).start();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("服务器启动失败");
+        }
+    }
+
+    // 循环读取一个连接上的请求，直到客户端关闭连接
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             OutputStream out = new BufferedOutputStream(s.getOutputStream())) {
+            // 用ReentrantLock而不是synchronized，虚拟线程等锁时不会占住载体线程
+            Lock writeLock = new ReentrantLock();
+            while (true) {
+                Object message = readFrame(in);
+                if (!(message instanceof RPCRequest)) {
+                    continue;
+                }
+                RPCRequest request = (RPCRequest) message;
+                Long deadline = RPCContext.deadlineOf(request);
+                long receivedNanos = System.nanoTime();
+                if (VirtualThreads.isSupported()) {
+                    threadFactory.newThread(() -> handle(request, deadline, receivedNanos, out, writeLock)).start();
+                } else {
+                    handle(request, deadline, receivedNanos, out, writeLock);
+                }
+            }
+        } catch (EOFException e) {
+            // 客户端关闭了连接
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("从IO中读取数据错误");
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            System.out.println("数据格式错误，关闭连接");
+        }
+    }
+
+    private void handle(RPCRequest request, Long deadline, long receivedNanos, OutputStream out, Lock writeLock) {
+        MethodInvoker invoker = serviceProvider.getInvoker(request.getInterfaceName(),
+                request.getMethodName(), request.getParamsTypes());
+        MethodMetrics metrics = invoker != null
+                ? RPCMetrics.server(request.getInterfaceName(), request.getMethodName())
+                : RPCMetrics.unknownServerMethod();
+        metrics.begin();
+        // 阻塞IO版本没有实现按信用发送，流式调用不执行服务方法，直接以失败结束，客户端不会一直等待
+        if (invoker != null && invoker.isStreaming()) {
+            System.out.println("虚拟线程版服务端不支持流式调用：" + request.getInterfaceName() + "." + request.getMethodName());
+            metrics.fail();
+            write(StreamFrame.end(request.getRequestId(), RPCResponse.fail()), out, writeLock);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        metrics.recordQueue(startNanos - receivedNanos);
+        // 调用方已经不再等待，不执行服务方法
+        if (RPCContext.isExpired(deadline)) {
+            System.out.println("请求已超时，不再执行：" + request.getInterfaceName() + "." + request.getMethodName());
+            metrics.fail();
+            RPCResponse response = RPCResponse.timeout();
+            response.setRequestId(request.getRequestId());
+            write(response, out, writeLock);
+            return;
+        }
+        // 服务方法里再发起的调用使用剩余的时间
+        RPCContext.setDeadline(deadline);
+        RPCResponse response;
+        try {
+            response = WorkThread.getResponse(request, invoker);
+        } finally {
+            RPCContext.clear();
+        }
+        metrics.end(startNanos, response.getCode() == 200);
+        response.setRequestId(request.getRequestId());
+        write(response, out, writeLock);
+    }
+
+    private void write(Object message, OutputStream out, Lock writeLock) {
+        try {
+            writeFrame(message, out, writeLock);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("写回响应失败");
+        }
+    }
+
+    // 读取一个完整的帧：先读固定长度的帧头拿到数据长度，再读数据
+    private Object readFrame(DataInputStream in) throws IOException {
+        byte[] header = new byte[ProtocolConstant.HEADER_LENGTH];
+        in.readFully(header);
+        ByteBuf headerBuf = Unpooled.wrappedBuffer(header);
+        int length = headerBuf.getInt(ProtocolConstant.LENGTH_FIELD_OFFSET);
+        if (length < 0 || length > ProtocolConstant.MAX_FRAME_LENGTH - ProtocolConstant.HEADER_LENGTH) {
+            throw new TooLongFrameException("帧长度超出限制：" + length);
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return FrameCodec.decode(Unpooled.wrappedBuffer(headerBuf, Unpooled.wrappedBuffer(body)));
+    }
+
+    // 同一个连接上的多个请求可能同时写回，写出整帧时加锁
+    private void writeFrame(Object message, OutputStream out, Lock writeLock) throws IOException {
+        ByteBuf buf = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            FrameCodec.encode(message, serializer, buf);
+            writeLock.lock();
+            try {
+                buf.readBytes(out, buf.readableBytes());
+                out.flush();
+            } finally {
+                writeLock.unlock();
+            }
+        } finally {
+            buf.release();
+        }
+    }
+}
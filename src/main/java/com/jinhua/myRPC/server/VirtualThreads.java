@@ -0,0 +1,48 @@
+package com.jinhua.myRPC.server;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程需要JDK21及以上，项目按JDK8编译，所以通过反射使用
+ * 运行在低版本JDK上时isSupported返回false，调用方自行决定退化方式
+ */
+public class VirtualThreads {
+    // 虚拟线程工厂，不支持时为null
+    private static final ThreadFactory FACTORY = createFactory();
+
+    public static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    // 虚拟线程工厂，不支持时使用指定名字的普通线程
+    public static ThreadFactory factory(String fallbackName) {
+        return FACTORY != null ? FACTORY : new DefaultThreadFactory(fallbackName);
+    }
+
+    // 每个任务一个虚拟线程的执行器，不支持时使用不限线程数的普通线程池
+    public static ExecutorService newPerTaskExecutor(String fallbackName) {
+        if (FACTORY != null) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, FACTORY);
+            } catch (ReflectiveOperationException e) {
+                e.printStackTrace();
+            }
+        }
+        return Executors.newCachedThreadPool(new DefaultThreadFactory(fallbackName));
+    }
+
+    private static ThreadFactory createFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("当前JDK不支持虚拟线程，使用普通线程代替");
+            return null;
+        }
+    }
+}
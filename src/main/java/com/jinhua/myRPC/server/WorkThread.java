@@ -7,9 +7,8 @@ import lombok.AllArgsConstructor;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 解析得到request请求，执行对应的服务方法，结果返回给客户端
@@ -31,7 +30,8 @@ public class WorkThread implements Runnable {
             // 读取客户端请求中的request
             RPCRequest request = (RPCRequest) ois.readObject();
             // 反射得到返回值
-            RPCResponse response = getResponse(request);
+            RPCResponse response = getResponse(serviceProvider, request);
+            response.setRequestId(request.getRequestId());
             //写入到客户端
             oos.writeObject(response);
             oos.flush();
@@ -41,18 +41,28 @@ public class WorkThread implements Runnable {
         }
     }
 
-    private RPCResponse getResponse(RPCRequest request) {
-        // 得到服务接口名
-        String interfaceName = request.getInterfaceName();
-        // 得到对应的实现类
-        Object service = serviceProvider.getService(interfaceName);
-        // 反射调用方法
-        Method method = null;
+    // 阻塞式地调用服务方法，阻塞IO版本的服务端共用
+    static RPCResponse getResponse(ServiceProvider serviceProvider, RPCRequest request) {
+        // 得到注册服务时已经解析好的方法调用器，不再反射查找方法
+        MethodInvoker invoker = serviceProvider.getInvoker(request.getInterfaceName(),
+                request.getMethodName(), request.getParamsTypes());
+        return getResponse(request, invoker);
+    }
+
+    // 调用器已经查好时直接调用，找不到服务方法时invoker为null
+    static RPCResponse getResponse(RPCRequest request, MethodInvoker invoker) {
+        if (invoker == null) {
+            System.out.println("不存在对应的服务方法：" + request.getInterfaceName() + "." + request.getMethodName());
+            return RPCResponse.fail();
+        }
         try {
-            method = service.getClass().getMethod(request.getMethodName(),request.getParamsTypes());
-            Object invoke = method.invoke(service, request.getParams());
+            Object invoke = invoker.invoke(request.getParams());
+            // 阻塞版服务端直接等待异步方法的结果
+            if (invoke instanceof CompletableFuture) {
+                invoke = ((CompletableFuture<?>) invoke).get();
+            }
             return RPCResponse.success(invoke);
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+        } catch (Throwable e) {
             e.printStackTrace();
             System.out.println("方法执行错误");
             return RPCResponse.fail();
@@ -1,7 +1,15 @@
 package com.jinhua.myRPC.service;
 
 import com.jinhua.myRPC.common.Blog;
+import com.jinhua.myRPC.common.RPCCacheable;
+
+import java.util.Iterator;
 
 public interface BlogService {
+    // 只读查询，客户端缓存1秒
+    @RPCCacheable(ttlMillis = 1000)
     Blog getBlogById(Integer id);
+
+    // 流式调用：返回值为Iterator，服务端逐个发送，客户端边读边收，不用一次性加载全部博客
+    Iterator<Blog> getBlogsByUserId(Integer userId, Integer count);
 }
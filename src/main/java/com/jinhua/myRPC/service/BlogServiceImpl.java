@@ -2,6 +2,9 @@ package com.jinhua.myRPC.service;
 
 import com.jinhua.myRPC.common.Blog;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 public class BlogServiceImpl implements BlogService{
     @Override
     public Blog getBlogById(Integer id) {
@@ -9,4 +12,27 @@ public class BlogServiceImpl implements BlogService{
         System.out.println("客户端查询了"+id+"博客");
         return blog;
     }
+
+    @Override
+    public Iterator<Blog> getBlogsByUserId(Integer userId, Integer count) {
+        System.out.println("客户端查询了用户" + userId + "的" + count + "篇博客");
+        // 模拟按需读取数据库，服务端根据客户端的消费速度逐个取出，不会一次性生成全部结果
+        return new Iterator<Blog>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Blog next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                next++;
+                return Blog.builder().id(next).title("jinhua的第" + next + "篇博客").userId(userId).build();
+            }
+        };
+    }
 }
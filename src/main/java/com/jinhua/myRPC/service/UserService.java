@@ -1,10 +1,20 @@
 package com.jinhua.myRPC.service;
 
+import com.jinhua.myRPC.common.RPCCacheable;
+import com.jinhua.myRPC.common.RPCSingleFlight;
 import com.jinhua.myRPC.common.User;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface UserService {
+    // 只读查询，客户端缓存1秒，服务端合并相同的并发请求
+    @RPCCacheable(ttlMillis = 1000)
+    @RPCSingleFlight
     User getUserByUserId(Integer id);
 
+    // 异步接口，客户端调用时不阻塞
+    CompletableFuture<User> getUserByUserIdAsync(Integer id);
+
     Integer insertUserId(User user);
 
     String hello();
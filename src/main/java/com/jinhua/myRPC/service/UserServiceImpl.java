@@ -2,6 +2,8 @@ package com.jinhua.myRPC.service;
 
 import com.jinhua.myRPC.common.User;
 
+import java.util.concurrent.CompletableFuture;
+
 public class UserServiceImpl implements UserService {
     private int count = -1;
 
@@ -13,6 +15,11 @@ public class UserServiceImpl implements UserService {
         return user;
     }
 
+    @Override
+    public CompletableFuture<User> getUserByUserIdAsync(Integer id) {
+        return CompletableFuture.completedFuture(getUserByUserId(id));
+    }
+
     @Override
     public Integer insertUserId(User user) {
         System.out.println("插入数据成功："+user);
@@ -0,0 +1,196 @@
+package com.jinhua.myRPC.LoadBalance;
+
+import com.jinhua.myRPC.common.RPCRequest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * 负载均衡策略中结果确定的部分：平滑加权轮询的顺序、最少活跃数的选择、P2C按代价选择
+ * ServerStats是进程内共用的，每个测试使用自己的地址
+ */
+public class LoadBalanceTest {
+    private static final RPCRequest REQUEST = RPCRequest.builder().interfaceName("TestService").build();
+
+    @Test
+    public void smoothWeightedRoundRobinOrder() {
+        LoadBalance loadBalance = new WeightedRoundLoadBalance();
+        List<String> addresses = Arrays.asList("a", "b", "c");
+        Map<String, Integer> weights = weights("a", 5, "b", 1, "c", 1);
+        List<String> expected = Arrays.asList("a", "a", "b", "a", "c", "a", "a");
+        // 每个周期（总权重7次）的顺序都相同
+        for (int round = 0; round < 3; round++) {
+            assertEquals(expected, select(loadBalance, addresses, weights, 7));
+        }
+    }
+
+    @Test
+    public void weightedRoundRobinWithoutWeightsIsPlainRoundRobin() {
+        LoadBalance loadBalance = new WeightedRoundLoadBalance();
+        List<String> addresses = Arrays.asList("a", "b", "c");
+        assertEquals(Arrays.asList("a", "b", "c", "a", "b", "c"), select(loadBalance, addresses, null, 6));
+    }
+
+    @Test
+    public void weightedRoundRobinSkipsZeroWeight() {
+        LoadBalance loadBalance = new WeightedRoundLoadBalance();
+        List<String> addresses = Arrays.asList("a", "b", "c");
+        Map<String, Integer> weights = weights("a", 1, "b", 0, "c", 1);
+        assertEquals(Arrays.asList("a", "c", "a", "c"), select(loadBalance, addresses, weights, 4));
+    }
+
+    // 权重变化后当前值从头累加，马上按新的比例分配
+    @Test
+    public void weightedRoundRobinFollowsWeightChange() {
+        LoadBalance loadBalance = new WeightedRoundLoadBalance();
+        List<String> addresses = Arrays.asList("a", "b");
+        select(loadBalance, addresses, weights("a", 1, "b", 1), 3);
+        List<String> selected = select(loadBalance, addresses, weights("a", 1, "b", 3), 4);
+        assertEquals(3, count(selected, "b"));
+        assertEquals(1, count(selected, "a"));
+    }
+
+    @Test
+    public void leastActiveChoosesIdlestAddress() {
+        String a = "least-a:1";
+        String b = "least-b:1";
+        String c = "least-c:1";
+        begin(a, 2);
+        begin(c, 1);
+        LoadBalance loadBalance = new LeastActiveLoadBalance();
+        List<String> addresses = Arrays.asList(a, b, c);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(b, loadBalance.doSelect(addresses, REQUEST));
+        }
+        // b上也有了2个请求，c变成最少的
+        begin(b, 2);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(c, loadBalance.doSelect(addresses, REQUEST));
+        }
+    }
+
+    // 活跃数相同时按权重随机，权重为0的地址不会被选中
+    @Test
+    public void leastActiveTieBreaksByWeight() {
+        String a = "least-tie-a:1";
+        String b = "least-tie-b:1";
+        String c = "least-tie-c:1";
+        begin(c, 1);
+        LoadBalance loadBalance = new LeastActiveLoadBalance();
+        List<String> addresses = Arrays.asList(a, b, c);
+        Map<String, Integer> weights = weights(a, 0, b, 10, c, 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(b, loadBalance.doSelect(addresses, weights, REQUEST));
+        }
+    }
+
+    // 只有两个地址时每次比较的都是这两个，总是选代价低的那个
+    @Test
+    public void p2cPrefersLowerLatency() {
+        String slow = "p2c-slow:1";
+        String fast = "p2c-fast:1";
+        sample(slow, 50_000_000L);
+        sample(fast, 1_000_000L);
+        LoadBalance loadBalance = new P2CEwmaLoadBalance();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(fast, loadBalance.doSelect(Arrays.asList(slow, fast), REQUEST));
+            assertEquals(fast, loadBalance.doSelect(Arrays.asList(fast, slow), REQUEST));
+        }
+    }
+
+    // 代价 = EWMA * (活跃数 + 1) / 权重，响应快但积压多的节点代价更高
+    @Test
+    public void p2cWeighsLatencyByActiveAndWeight() {
+        String busy = "p2c-busy:1";
+        String idle = "p2c-idle:1";
+        sample(busy, 1_000_000L);
+        sample(idle, 3_000_000L);
+        LoadBalance loadBalance = new P2CEwmaLoadBalance();
+        List<String> addresses = Arrays.asList(busy, idle);
+        assertEquals(busy, loadBalance.doSelect(addresses, REQUEST));
+        // busy：1ms * 10 = 10ms，idle：3ms * 1 = 3ms
+        begin(busy, 9);
+        assertEquals(idle, loadBalance.doSelect(addresses, REQUEST));
+        // busy的权重是idle的10倍后：10ms / 10 = 1ms
+        assertEquals(busy, loadBalance.doSelect(addresses, weights(busy, 1000, idle, 100), REQUEST));
+        assertEquals(idle, loadBalance.doSelect(addresses, weights(busy, 0, idle, 100), REQUEST));
+    }
+
+    // 没有样本的新节点空闲时代价为0，有请求在处理时按惩罚值计算
+    @Test
+    public void p2cPenalizesBusyNodeWithoutSamples() {
+        String fresh = "p2c-fresh:1";
+        String known = "p2c-known:1";
+        sample(known, 100_000_000L);
+        LoadBalance loadBalance = new P2CEwmaLoadBalance();
+        List<String> addresses = Arrays.asList(known, fresh);
+        assertEquals(fresh, loadBalance.doSelect(addresses, REQUEST));
+        begin(fresh, 1);
+        assertEquals(known, loadBalance.doSelect(addresses, REQUEST));
+    }
+
+    // 多个地址时代价最高的地址和任何地址比较都会输，永远不会被选中
+    @Test
+    public void p2cNeverChoosesWorstAddress() {
+        String worst = "p2c-worst:1";
+        List<String> addresses = new ArrayList<>();
+        sample(worst, 500_000_000L);
+        addresses.add(worst);
+        for (int i = 0; i < 4; i++) {
+            String address = "p2c-ok-" + i + ":1";
+            sample(address, (i + 1) * 1_000_000L);
+            addresses.add(address);
+        }
+        LoadBalance loadBalance = new P2CEwmaLoadBalance();
+        for (int i = 0; i < 1000; i++) {
+            assertNotEquals(worst, loadBalance.doSelect(addresses, REQUEST));
+        }
+    }
+
+    private static List<String> select(LoadBalance loadBalance, List<String> addresses,
+                                       Map<String, Integer> weights, int times) {
+        List<String> selected = new ArrayList<>();
+        for (int i = 0; i < times; i++) {
+            selected.add(loadBalance.doSelect(addresses, weights, REQUEST));
+        }
+        return selected;
+    }
+
+    private static int count(List<String> selected, String address) {
+        int count = 0;
+        for (String s : selected) {
+            if (s.equals(address)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Map<String, Integer> weights(Object... addressAndWeight) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (int i = 0; i < addressAndWeight.length; i += 2) {
+            weights.put((String) addressAndWeight[i], (Integer) addressAndWeight[i + 1]);
+        }
+        return weights;
+    }
+
+    private static void begin(String address, int requests) {
+        for (int i = 0; i < requests; i++) {
+            ServerStats.of(address).begin();
+        }
+    }
+
+    // 记录一次耗时为rttNanos的请求
+    private static void sample(String address, long rttNanos) {
+        ServerStats stats = ServerStats.of(address);
+        long start = stats.begin();
+        stats.end(start - rttNanos);
+    }
+}
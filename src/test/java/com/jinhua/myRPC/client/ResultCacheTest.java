@@ -0,0 +1,101 @@
+package com.jinhua.myRPC.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ResultCacheTest {
+
+    @Test
+    public void hitAndMiss() {
+        ResultCache cache = new ResultCache(60_000, 16);
+        assertSame(ResultCache.MISS, cache.get(new Object[]{1}));
+        cache.put(new Object[]{1}, "one");
+        assertEquals("one", cache.get(new Object[]{1}));
+        assertSame(ResultCache.MISS, cache.get(new Object[]{2}));
+    }
+
+    // null是合法的返回值，和没有命中区分开
+    @Test
+    public void nullValueIsCached() {
+        ResultCache cache = new ResultCache(60_000, 16);
+        cache.put(new Object[]{1}, null);
+        assertNull(cache.get(new Object[]{1}));
+    }
+
+    // 参数按值比较，数组参数按内容比较；放入后修改调用方的参数数组不影响缓存
+    @Test
+    public void keysCompareByValue() {
+        ResultCache cache = new ResultCache(60_000, 16);
+        Object[] args = {"a", new int[]{1, 2}};
+        cache.put(args, "v");
+        args[0] = "b";
+        assertEquals("v", cache.get(new Object[]{"a", new int[]{1, 2}}));
+        assertSame(ResultCache.MISS, cache.get(new Object[]{"a", new int[]{1, 3}}));
+        cache.put(null, "no args");
+        assertEquals("no args", cache.get(new Object[0]));
+    }
+
+    @Test
+    public void entriesExpire() throws Exception {
+        ResultCache cache = new ResultCache(50, 16);
+        cache.put(new Object[]{1}, "one");
+        assertEquals("one", cache.get(new Object[]{1}));
+        Thread.sleep(80);
+        assertSame(ResultCache.MISS, cache.get(new Object[]{1}));
+        // 过期后重新放入的值可以再次命中
+        cache.put(new Object[]{1}, "again");
+        assertEquals("again", cache.get(new Object[]{1}));
+    }
+
+    // 超过容量时淘汰没有被访问过的条目，访问过的得到第二次机会
+    @Test
+    public void clockEvictionKeepsReferencedEntries() {
+        ResultCache cache = new ResultCache(60_000, 100);
+        for (int i = 0; i < 100; i++) {
+            cache.put(new Object[]{i}, i);
+        }
+        for (int i = 0; i < 50; i++) {
+            cache.get(new Object[]{i});
+        }
+        for (int i = 100; i < 150; i++) {
+            cache.put(new Object[]{i}, i);
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, cache.get(new Object[]{i}));
+        }
+        for (int i = 50; i < 100; i++) {
+            assertSame(ResultCache.MISS, cache.get(new Object[]{i}));
+        }
+        for (int i = 100; i < 150; i++) {
+            assertEquals(i, cache.get(new Object[]{i}));
+        }
+    }
+
+    // 没有条目被访问过时按加入顺序淘汰，总数不超过容量
+    @Test
+    public void evictsInInsertionOrder() {
+        ResultCache cache = new ResultCache(60_000, 3);
+        for (int i = 0; i < 5; i++) {
+            cache.put(new Object[]{i}, i);
+        }
+        assertSame(ResultCache.MISS, cache.get(new Object[]{0}));
+        assertSame(ResultCache.MISS, cache.get(new Object[]{1}));
+        assertEquals(2, cache.get(new Object[]{2}));
+        assertEquals(3, cache.get(new Object[]{3}));
+        assertEquals(4, cache.get(new Object[]{4}));
+    }
+
+    // 已经存在的key重新放入时替换值，不占用额外的容量
+    @Test
+    public void replaceDoesNotEvict() {
+        ResultCache cache = new ResultCache(60_000, 2);
+        cache.put(new Object[]{1}, "a");
+        cache.put(new Object[]{2}, "b");
+        cache.put(new Object[]{1}, "c");
+        assertEquals("c", cache.get(new Object[]{1}));
+        assertEquals("b", cache.get(new Object[]{2}));
+    }
+}
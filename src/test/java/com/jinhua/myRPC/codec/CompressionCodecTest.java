@@ -0,0 +1,104 @@
+package com.jinhua.myRPC.codec;
+
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompressionCodecTest {
+    private static final int[] COMPRESSORS = {1, 2, 3};
+
+    private static final int THRESHOLD = 1024;
+
+    @Test
+    public void responseRoundTrip() {
+        // 100KB超过snappy的单块长度，按多块压缩
+        String data = payload(100 * 1024);
+        for (int type : COMPRESSORS) {
+            RPCResponse response = RPCResponse.success(data);
+            response.setRequestId(42);
+            ByteBuf frame = encode(response, Compressor.getCompressorByCode(type));
+            assertEquals(type, frame.getByte(ProtocolConstant.COMPRESS_FIELD_OFFSET));
+            assertTrue(frame.readableBytes() < data.length());
+            RPCResponse decoded = (RPCResponse) decode(frame);
+            assertEquals(42, decoded.getRequestId());
+            assertEquals(200, decoded.getCode());
+            assertEquals(data, decoded.getData());
+        }
+    }
+
+    @Test
+    public void requestRoundTrip() {
+        String arg = payload(4 * 1024);
+        for (int type : COMPRESSORS) {
+            RPCRequest request = RPCRequest.builder().requestId(7).interfaceName("com.jinhua.myRPC.service.UserService")
+                    .methodName("insertUserId").params(new Object[]{arg, 3})
+                    .paramsTypes(new Class[]{String.class, Integer.class}).timeout(500).build();
+            ByteBuf frame = encode(request, Compressor.getCompressorByCode(type));
+            assertEquals(type, frame.getByte(ProtocolConstant.COMPRESS_FIELD_OFFSET));
+            RPCRequest decoded = (RPCRequest) decode(frame);
+            assertEquals(7, decoded.getRequestId());
+            assertEquals(request.getMethodName(), decoded.getMethodName());
+            assertArrayEquals(request.getParams(), decoded.getParams());
+            assertArrayEquals(request.getParamsTypes(), decoded.getParamsTypes());
+            assertEquals(500, decoded.getTimeout());
+        }
+    }
+
+    // 小于阈值的数据不压缩
+    @Test
+    public void smallBodyIsNotCompressed() {
+        for (int type : COMPRESSORS) {
+            ByteBuf frame = encode(RPCResponse.success("hello"), Compressor.getCompressorByCode(type));
+            assertEquals(ProtocolConstant.COMPRESS_NONE, frame.getByte(ProtocolConstant.COMPRESS_FIELD_OFFSET));
+            assertEquals("hello", ((RPCResponse) decode(frame)).getData());
+        }
+    }
+
+    // 帧被拆成多段到达时解码器拼成完整的帧再解压
+    @Test
+    public void fragmentedFrame() {
+        String data = payload(64 * 1024);
+        for (int type : COMPRESSORS) {
+            ByteBuf frame = encode(RPCResponse.success(data), Compressor.getCompressorByCode(type));
+            EmbeddedChannel channel = new EmbeddedChannel(new MyDecode());
+            int half = frame.readableBytes() / 2;
+            assertFalse(channel.writeInbound(frame.readRetainedSlice(half)));
+            assertTrue(channel.writeInbound(frame.readRetainedSlice(frame.readableBytes())));
+            frame.release();
+            assertEquals(data, ((RPCResponse) channel.readInbound()).getData());
+            channel.finish();
+        }
+    }
+
+    static ByteBuf encode(Object message, Compressor compressor) {
+        EmbeddedChannel channel = new EmbeddedChannel(new MyEncode(Serializer.getSerializerByCode(2), compressor, THRESHOLD));
+        assertTrue(channel.writeOutbound(message));
+        ByteBuf frame = channel.readOutbound();
+        channel.finish();
+        return frame;
+    }
+
+    static Object decode(ByteBuf frame) {
+        EmbeddedChannel channel = new EmbeddedChannel(new MyDecode());
+        assertTrue(channel.writeInbound(frame));
+        Object message = channel.readInbound();
+        channel.finish();
+        return message;
+    }
+
+    // 可压缩的数据
+    private static String payload(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; sb.length() < length; i++) {
+            sb.append("blog-").append(i % 100).append(';');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.jinhua.myRPC.codec;
+
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+import com.jinhua.myRPC.common.User;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class KryoSerializerTest {
+    private static final int KRYO = 3;
+
+    private static final Serializer SERIALIZER = Serializer.getSerializerByCode(KRYO);
+
+    @Test
+    public void requestRoundTrip() {
+        User user = User.builder().id(1).userName("jinhua").sex(true).build();
+        RPCRequest request = RPCRequest.builder().requestId(7).interfaceName("com.jinhua.myRPC.service.UserService")
+                .methodName("insertUserId").params(new Object[]{user, 3, "x"})
+                .paramsTypes(new Class[]{User.class, int.class, String.class}).timeout(500).build();
+        RPCRequest decoded = (RPCRequest) roundTrip(request);
+        assertEquals(7, decoded.getRequestId());
+        assertEquals(request.getInterfaceName(), decoded.getInterfaceName());
+        assertEquals(request.getMethodName(), decoded.getMethodName());
+        assertArrayEquals(request.getParams(), decoded.getParams());
+        assertArrayEquals(request.getParamsTypes(), decoded.getParamsTypes());
+        assertEquals(500, decoded.getTimeout());
+    }
+
+    // 无参方法的params和paramsTypes可能是null
+    @Test
+    public void requestWithNullParams() {
+        RPCRequest request = RPCRequest.builder().requestId(8).interfaceName("com.jinhua.myRPC.service.BlogService")
+                .methodName("getBlogById").build();
+        RPCRequest decoded = (RPCRequest) roundTrip(request);
+        assertEquals(8, decoded.getRequestId());
+        assertEquals("getBlogById", decoded.getMethodName());
+        assertNull(decoded.getParams());
+        assertNull(decoded.getParamsTypes());
+    }
+
+    // 参数数组中的null元素
+    @Test
+    public void requestWithNullParam() {
+        RPCRequest request = RPCRequest.builder().requestId(9).methodName("find")
+                .params(new Object[]{null, "x"}).paramsTypes(new Class[]{Integer.class, String.class}).build();
+        RPCRequest decoded = (RPCRequest) roundTrip(request);
+        assertArrayEquals(new Object[]{null, "x"}, decoded.getParams());
+    }
+
+    @Test
+    public void responseRoundTrip() {
+        User user = User.builder().id(1).userName("jinhua").sex(false).build();
+        RPCResponse response = RPCResponse.success(user);
+        response.setRequestId(42);
+        RPCResponse decoded = (RPCResponse) roundTrip(response);
+        assertEquals(42, decoded.getRequestId());
+        assertEquals(200, decoded.getCode());
+        assertEquals(User.class, decoded.getDataType());
+        assertEquals(user, decoded.getData());
+    }
+
+    // void方法和失败的响应没有data
+    @Test
+    public void responseWithNullData() {
+        RPCResponse decoded = (RPCResponse) roundTrip(RPCResponse.success(null));
+        assertEquals(200, decoded.getCode());
+        assertNull(decoded.getData());
+        assertNull(decoded.getDataType());
+
+        decoded = (RPCResponse) roundTrip(RPCResponse.fail());
+        assertEquals(500, decoded.getCode());
+        assertEquals("服务器发生错误", decoded.getMessage());
+        assertNull(decoded.getData());
+    }
+
+    @Test
+    public void collectionData() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(User.builder().id(i).userName("user" + i).sex(i % 2 == 0).build());
+        }
+        assertEquals(users, ((RPCResponse) roundTrip(RPCResponse.success(users))).getData());
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("user", users.get(0));
+        map.put("count", 3);
+        map.put("none", null);
+        assertEquals(map, ((RPCResponse) roundTrip(RPCResponse.success(map))).getData());
+
+        // Arrays.asList按ArrayList反序列化
+        List<String> fixed = Arrays.asList("a", "b", "c");
+        Object data = ((RPCResponse) roundTrip(RPCResponse.success(fixed))).getData();
+        assertEquals(ArrayList.class, data.getClass());
+        assertEquals(fixed, data);
+    }
+
+    // 大于Output缓冲区（4KB）的数据分多次写入ByteBuf
+    @Test
+    public void largeData() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 64 * 1024; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        String data = sb.toString();
+        assertEquals(data, ((RPCResponse) roundTrip(RPCResponse.success(data))).getData());
+    }
+
+    // 字节数组接口和ByteBuf接口的结果相同
+    @Test
+    public void byteArrayRoundTrip() {
+        RPCResponse response = RPCResponse.success(Arrays.asList(1, 2, 3));
+        byte[] bytes = SERIALIZER.serialize(response);
+        ByteBuf buf = Unpooled.buffer();
+        SERIALIZER.serialize(response, buf);
+        byte[] direct = new byte[buf.readableBytes()];
+        buf.readBytes(direct);
+        assertArrayEquals(bytes, direct);
+        assertEquals(Arrays.asList(1, 2, 3), ((RPCResponse) SERIALIZER.deserialize(bytes, MessageType.RESPONSE.getCode())).getData());
+    }
+
+    private static Object roundTrip(Object o) {
+        ByteBuf frame = Unpooled.buffer();
+        FrameCodec.encode(o, SERIALIZER, frame);
+        // 魔数4字节、版本1字节、消息类型2字节之后是序列化方式
+        assertEquals(KRYO, frame.getShort(7));
+        Object decoded = FrameCodec.decode(frame);
+        assertEquals(0, frame.readableBytes());
+        frame.release();
+        return decoded;
+    }
+}
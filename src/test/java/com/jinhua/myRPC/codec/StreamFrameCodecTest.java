@@ -0,0 +1,76 @@
+package com.jinhua.myRPC.codec;
+
+import com.jinhua.myRPC.common.RPCResponse;
+import io.netty.buffer.ByteBuf;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StreamFrameCodecTest {
+
+    @Test
+    public void data() {
+        StreamFrame frame = roundTrip(StreamFrame.data(9, "element"));
+        assertEquals(MessageType.STREAM_DATA, frame.getType());
+        assertEquals(9, frame.getRequestId());
+        assertEquals(200, frame.getResponse().getCode());
+        assertEquals("element", frame.getResponse().getData());
+    }
+
+    @Test
+    public void nullData() {
+        StreamFrame frame = roundTrip(StreamFrame.data(9, null));
+        assertEquals(MessageType.STREAM_DATA, frame.getType());
+        assertNull(frame.getResponse().getData());
+    }
+
+    @Test
+    public void end() {
+        StreamFrame ok = roundTrip(StreamFrame.end(10, RPCResponse.success(null)));
+        assertEquals(MessageType.STREAM_END, ok.getType());
+        assertEquals(10, ok.getRequestId());
+        assertEquals(200, ok.getResponse().getCode());
+
+        StreamFrame failed = roundTrip(StreamFrame.end(11, RPCResponse.fail()));
+        assertEquals(MessageType.STREAM_END, failed.getType());
+        assertEquals(RPCResponse.fail().getCode(), failed.getResponse().getCode());
+    }
+
+    @Test
+    public void cancel() {
+        StreamFrame frame = roundTrip(StreamFrame.cancel(12));
+        assertEquals(MessageType.STREAM_CANCEL, frame.getType());
+        assertEquals(12, frame.getRequestId());
+        assertNull(frame.getResponse());
+    }
+
+    @Test
+    public void credit() {
+        StreamFrame frame = roundTrip(StreamFrame.credit(13, 64));
+        assertEquals(MessageType.STREAM_CREDIT, frame.getType());
+        assertEquals(13, frame.getRequestId());
+        assertEquals(64, frame.getCredit());
+    }
+
+    // 流中的元素和普通响应一样按阈值压缩
+    @Test
+    public void compressedData() {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 50 * 1024) {
+            sb.append("stream-element;");
+        }
+        String element = sb.toString();
+        for (int type = 1; type <= 3; type++) {
+            ByteBuf encoded = CompressionCodecTest.encode(StreamFrame.data(14, element), Compressor.getCompressorByCode(type));
+            assertEquals(type, encoded.getByte(ProtocolConstant.COMPRESS_FIELD_OFFSET));
+            StreamFrame frame = (StreamFrame) CompressionCodecTest.decode(encoded);
+            assertEquals(MessageType.STREAM_DATA, frame.getType());
+            assertEquals(element, frame.getResponse().getData());
+        }
+    }
+
+    private static StreamFrame roundTrip(StreamFrame frame) {
+        return (StreamFrame) CompressionCodecTest.decode(CompressionCodecTest.encode(frame, null));
+    }
+}
@@ -0,0 +1,97 @@
+package com.jinhua.myRPC.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesHaveOwnBucket() {
+        for (int v = 0; v < 16; v++) {
+            assertEquals(v, LatencyHistogram.indexOf(v));
+            assertEquals(v, LatencyHistogram.lowerBoundOf(v));
+            assertEquals(1, LatencyHistogram.widthOf(v));
+        }
+        assertEquals(16, LatencyHistogram.indexOf(16));
+        assertEquals(31, LatencyHistogram.indexOf(31));
+        assertEquals(32, LatencyHistogram.indexOf(32));
+        assertEquals(32, LatencyHistogram.indexOf(33));
+    }
+
+    // 桶首尾相接，边界值落在自己的桶里，相对误差不超过1/16
+    @Test
+    public void bucketsAreContiguous() {
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            long lower = LatencyHistogram.lowerBoundOf(i);
+            long width = LatencyHistogram.widthOf(i);
+            assertEquals(i, LatencyHistogram.indexOf(lower));
+            assertEquals(i, LatencyHistogram.indexOf(lower + width - 1));
+            if (i + 1 < LatencyHistogram.BUCKETS) {
+                assertEquals(LatencyHistogram.lowerBoundOf(i + 1), lower + width);
+            }
+            if (i >= 16) {
+                assertTrue(width * 16 <= lower);
+            }
+        }
+    }
+
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        int last = LatencyHistogram.BUCKETS - 1;
+        assertEquals(last, LatencyHistogram.indexOf((1L << 36) - 1));
+        assertEquals(last, LatencyHistogram.indexOf(1L << 36));
+        assertEquals(last, LatencyHistogram.indexOf(Long.MAX_VALUE));
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500_500, snapshot.getMean(), 0.001);
+        assertWithin(500_000, snapshot.getPercentile(50));
+        assertWithin(900_000, snapshot.getPercentile(90));
+        assertWithin(990_000, snapshot.getPercentile(99));
+        assertWithin(1_000, snapshot.getPercentile(0));
+        assertTrue(snapshot.getMax() >= 1_000_000);
+        assertWithin(1_000_000, snapshot.getMax());
+    }
+
+    @Test
+    public void emptySnapshot() {
+        HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMean(), 0);
+        assertEquals(0, snapshot.getPercentile(99));
+        assertEquals(0, snapshot.getMax());
+    }
+
+    @Test
+    public void sinceKeepsOnlyNewSamples() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000);
+        HistogramSnapshot first = histogram.snapshot();
+        histogram.record(1_000_000);
+        histogram.record(1_000_000);
+        HistogramSnapshot delta = histogram.snapshot().since(first);
+        assertEquals(2, delta.getCount());
+        assertEquals(1_000_000, delta.getMean(), 0.001);
+        assertWithin(1_000_000, delta.getPercentile(50));
+    }
+
+    // 误差不超过一个桶的宽度，即1/16
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 16);
+    }
+}
@@ -0,0 +1,154 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.codec.MessageType;
+import com.jinhua.myRPC.codec.StreamFrame;
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.register.LocalServiceRegister;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 服务方法在IO线程上直接执行，发送过程是同步的，每一步之后都可以检查服务端读取了多少元素
+ */
+public class ServerStreamTest {
+    private static final long REQUEST_ID = 1;
+
+    private static final int WINDOW = 8;
+
+    private CounterServiceImpl service;
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        service = new CounterServiceImpl();
+        ServiceProvider serviceProvider = new ServiceProvider("127.0.0.1", 0, new LocalServiceRegister());
+        serviceProvider.provideServiceInterface(service);
+        channel = new EmbeddedChannel(new NettyRPCServerHandler(serviceProvider, new DirectDispatcher(), new SingleFlight()));
+    }
+
+    // 没有信用时服务端一个元素也不读取
+    @Test
+    public void waitsForCredit() {
+        channel.writeInbound(request(100));
+        assertNull(channel.readOutbound());
+        assertEquals(0, service.source.produced);
+    }
+
+    // 客户端每消费半个窗口补充一次信用，服务端读取的元素始终不超过客户端消费的个数加一个窗口
+    @Test
+    public void neverMoreThanWindowAhead() {
+        int count = 100;
+        channel.writeInbound(request(count));
+        channel.writeInbound(StreamFrame.credit(REQUEST_ID, WINDOW));
+        int consumed = 0;
+        int sinceCredit = 0;
+        while (true) {
+            StreamFrame frame = channel.readOutbound();
+            assertTrue("服务端读取了" + service.source.produced + "个，客户端只消费了" + consumed + "个",
+                    service.source.produced <= consumed + WINDOW);
+            if (frame == null) {
+                assertTrue(sinceCredit > 0);
+                channel.writeInbound(StreamFrame.credit(REQUEST_ID, sinceCredit));
+                sinceCredit = 0;
+                continue;
+            }
+            assertEquals(REQUEST_ID, frame.getRequestId());
+            if (frame.getType() == MessageType.STREAM_END) {
+                assertEquals(200, frame.getResponse().getCode());
+                break;
+            }
+            assertEquals(MessageType.STREAM_DATA, frame.getType());
+            assertEquals(consumed, frame.getResponse().getData());
+            consumed++;
+            if (++sinceCredit == WINDOW / 2) {
+                channel.writeInbound(StreamFrame.credit(REQUEST_ID, sinceCredit));
+                sinceCredit = 0;
+            }
+        }
+        assertEquals(count, consumed);
+        assertTrue(service.source.closed);
+    }
+
+    // 取消后不再读取，并关闭服务方法返回的Iterator
+    @Test
+    public void cancelStopsProducing() {
+        channel.writeInbound(request(100));
+        channel.writeInbound(StreamFrame.credit(REQUEST_ID, WINDOW));
+        for (int i = 0; i < WINDOW; i++) {
+            StreamFrame frame = channel.readOutbound();
+            assertEquals(MessageType.STREAM_DATA, frame.getType());
+        }
+        channel.writeInbound(StreamFrame.cancel(REQUEST_ID));
+        channel.writeInbound(StreamFrame.credit(REQUEST_ID, WINDOW));
+        assertNull(channel.readOutbound());
+        assertEquals(WINDOW, service.source.produced);
+        assertTrue(service.source.closed);
+    }
+
+    @Test
+    public void emptyStream() {
+        channel.writeInbound(request(0));
+        channel.writeInbound(StreamFrame.credit(REQUEST_ID, WINDOW));
+        StreamFrame frame = channel.readOutbound();
+        assertEquals(MessageType.STREAM_END, frame.getType());
+        assertEquals(200, frame.getResponse().getCode());
+        assertNull(channel.readOutbound());
+    }
+
+    private static RPCRequest request(int count) {
+        return RPCRequest.builder().requestId(REQUEST_ID).interfaceName(CounterService.class.getName())
+                .methodName("count").params(new Object[]{count}).paramsTypes(new Class[]{Integer.class}).build();
+    }
+
+    public interface CounterService {
+        Iterator<Integer> count(Integer count);
+    }
+
+    public static class CounterServiceImpl implements CounterService {
+        private CountingIterator source;
+
+        @Override
+        public Iterator<Integer> count(Integer count) {
+            source = new CountingIterator(count);
+            return source;
+        }
+    }
+
+    // 记录服务端实际读取了多少个元素
+    static class CountingIterator implements Iterator<Integer>, AutoCloseable {
+        private final int count;
+        private volatile int produced;
+        private volatile boolean closed;
+
+        CountingIterator(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return produced < count;
+        }
+
+        @Override
+        public Integer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return produced++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
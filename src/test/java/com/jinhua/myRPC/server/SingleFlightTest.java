@@ -0,0 +1,227 @@
+package com.jinhua.myRPC.server;
+
+import com.jinhua.myRPC.codec.MyDecode;
+import com.jinhua.myRPC.codec.MyEncode;
+import com.jinhua.myRPC.codec.Serializer;
+import com.jinhua.myRPC.common.RPCRequest;
+import com.jinhua.myRPC.common.RPCResponse;
+import com.jinhua.myRPC.common.RPCSingleFlight;
+import com.jinhua.myRPC.register.LocalServiceRegister;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 业务线程的任务先放在队列里，由测试决定什么时候执行，这样相同的请求一定在执行者结束前到达
+ */
+public class SingleFlightTest {
+    private CounterServiceImpl service;
+
+    private QueueDispatcher dispatcher;
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        service = new CounterServiceImpl();
+        ServiceProvider serviceProvider = new ServiceProvider("127.0.0.1", 0, new LocalServiceRegister());
+        serviceProvider.provideServiceInterface(service);
+        dispatcher = new QueueDispatcher();
+        // 共用的响应以SharedResponse.Frame写出，经过编码器才能得到各自的响应
+        channel = new EmbeddedChannel(new MyEncode(Serializer.getSerializerByCode(2)),
+                new NettyRPCServerHandler(serviceProvider, dispatcher, new SingleFlight()));
+    }
+
+    @Test
+    public void followersShareLeaderResult() {
+        for (long id = 1; id <= 5; id++) {
+            channel.writeInbound(request("next", id, 0));
+        }
+        assertEquals(1, dispatcher.tasks.size());
+        dispatcher.runAll();
+        Map<Long, RPCResponse> responses = responses();
+        assertEquals(5, responses.size());
+        for (long id = 1; id <= 5; id++) {
+            assertEquals(200, responses.get(id).getCode());
+            assertEquals(1, responses.get(id).getData());
+        }
+        assertEquals(1, service.calls.get());
+
+        // 执行结束后到达的相同请求重新执行
+        channel.writeInbound(request("next", 6, 0));
+        dispatcher.runAll();
+        assertEquals(2, responses().get(6L).getData());
+    }
+
+    // 执行者超时没有执行服务方法，只有它自己收到超时，等待的请求由其中一个重新执行后共用结果
+    @Test
+    public void followersReExecuteAfterLeaderTimeout() throws Exception {
+        channel.writeInbound(request("next", 1, 200));
+        for (long id = 2; id <= 4; id++) {
+            channel.writeInbound(request("next", id, 0));
+        }
+        Thread.sleep(300);
+        dispatcher.runAll();
+        Map<Long, RPCResponse> responses = responses();
+        assertEquals(4, responses.size());
+        assertEquals(RPCResponse.timeout().getCode(), responses.get(1L).getCode());
+        for (long id = 2; id <= 4; id++) {
+            assertEquals(200, responses.get(id).getCode());
+            assertEquals(1, responses.get(id).getData());
+        }
+        assertEquals(1, service.calls.get());
+    }
+
+    // 重新执行时被拒绝的请求只有自己收到拒绝，剩下的请求继续重新执行
+    @Test
+    public void rejectedLeaderIsNotShared() throws Exception {
+        channel.writeInbound(request("next", 1, 200));
+        for (long id = 2; id <= 4; id++) {
+            channel.writeInbound(request("next", id, 0));
+        }
+        Thread.sleep(300);
+        dispatcher.failure = new RejectedExecutionException();
+        dispatcher.runAll();
+        Map<Long, RPCResponse> responses = responses();
+        assertEquals(4, responses.size());
+        assertEquals(RPCResponse.timeout().getCode(), responses.get(1L).getCode());
+        // 等待的请求重新加入的顺序不确定，第一个成为执行者的被拒绝
+        int rejected = 0;
+        for (long id = 2; id <= 4; id++) {
+            if (responses.get(id).getCode() == 503) {
+                rejected++;
+            } else {
+                assertEquals(1, responses.get(id).getData());
+            }
+        }
+        assertEquals(1, rejected);
+        assertEquals(1, service.calls.get());
+    }
+
+    // 分发时出现意料之外的异常，执行者收到失败并放弃合并，之后的相同请求重新执行
+    @Test
+    public void unexpectedFailureAbandonsCall() {
+        dispatcher.failure = new IllegalStateException("dispatcher broken");
+        channel.writeInbound(request("next", 1, 0));
+        assertEquals(RPCResponse.fail().getCode(), responses().get(1L).getCode());
+        channel.writeInbound(request("next", 2, 0));
+        assertEquals(1, dispatcher.tasks.size());
+        dispatcher.runAll();
+        assertEquals(1, responses().get(2L).getData());
+    }
+
+    // 等待的请求最多等到自己的截止时间，之后执行者的结果不再写回给它
+    @Test
+    public void followerTimesOutOnItsOwnDeadline() throws Exception {
+        channel.writeInbound(request("next", 1, 0));
+        channel.writeInbound(request("next", 2, 200));
+        Thread.sleep(300);
+        channel.runScheduledPendingTasks();
+        Map<Long, RPCResponse> responses = responses();
+        assertEquals(1, responses.size());
+        assertEquals(RPCResponse.timeout().getCode(), responses.get(2L).getCode());
+
+        dispatcher.runAll();
+        responses = responses();
+        assertEquals(1, responses.size());
+        assertEquals(200, responses.get(1L).getCode());
+    }
+
+    // 服务方法返回的CompletableFuture一直不完成时，到执行者的截止时间放弃合并，之后的相同请求重新执行
+    @Test
+    public void stuckLeaderIsAbandonedAtItsDeadline() throws Exception {
+        channel.writeInbound(request("never", 1, 200));
+        dispatcher.runAll();
+        channel.writeInbound(request("never", 2, 0));
+        assertEquals(0, dispatcher.tasks.size());
+        Thread.sleep(300);
+        channel.runScheduledPendingTasks();
+        // 等待的请求重新加入并成为执行者
+        assertEquals(1, dispatcher.tasks.size());
+        dispatcher.runAll();
+        assertEquals(2, service.neverCalls.get());
+        channel.writeInbound(request("never", 3, 0));
+        assertEquals(0, dispatcher.tasks.size());
+    }
+
+    private static RPCRequest request(String method, long id, long timeout) {
+        return RPCRequest.builder().requestId(id).interfaceName(CounterService.class.getName())
+                .methodName(method).params(new Object[]{"key"}).paramsTypes(new Class[]{String.class})
+                .timeout(timeout).build();
+    }
+
+    // 解码已经写出的所有响应，请求id -> 响应
+    private Map<Long, RPCResponse> responses() {
+        EmbeddedChannel decoder = new EmbeddedChannel(new MyDecode());
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            decoder.writeInbound(buf);
+        }
+        Map<Long, RPCResponse> responses = new HashMap<>();
+        RPCResponse response;
+        while ((response = decoder.readInbound()) != null) {
+            assertTrue("重复的响应：" + response.getRequestId(), responses.put(response.getRequestId(), response) == null);
+        }
+        decoder.finish();
+        return responses;
+    }
+
+    public interface CounterService {
+        @RPCSingleFlight
+        Integer next(String key);
+
+        @RPCSingleFlight
+        CompletableFuture<Integer> never(String key);
+    }
+
+    public static class CounterServiceImpl implements CounterService {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger neverCalls = new AtomicInteger();
+
+        @Override
+        public Integer next(String key) {
+            return calls.incrementAndGet();
+        }
+
+        @Override
+        public CompletableFuture<Integer> never(String key) {
+            neverCalls.incrementAndGet();
+            return new CompletableFuture<>();
+        }
+    }
+
+    static class QueueDispatcher implements Dispatcher {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        // 下一次分发时抛出的异常
+        private RuntimeException failure;
+
+        @Override
+        public void dispatch(RPCRequest request, Runnable task) {
+            if (failure != null) {
+                RuntimeException e = failure;
+                failure = null;
+                throw e;
+            }
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+}